@@ -0,0 +1,36 @@
+import java.util.Arrays;
+
+//A* over dense indices, for WeightedGraph and CsrGraph. Nodes are taken in order of distance from the source
+//plus the heuristic's estimate of the rest of the way.
+class AStar {
+
+	private AStar() {
+	}
+
+	//Weight of the shortest path from index s to index t (INFINITY if there is none) over the indices
+	//0 .. capacity - 1, for non-negative weights
+	static int run(IndexedEdges g, int capacity, int s, int t, Heuristic h) {
+		int to = g.idAt(t);
+		int[] distances = new int[capacity];
+		Arrays.fill(distances, WeightedGraph.INFINITY);
+		distances[s] = 0;
+		IndexedMinHeap S = new IndexedMinHeap(capacity);
+		S.insert(s, h.estimate(g.idAt(s), to));
+
+		while (!S.isEmpty()) {
+			int selected = S.poll();
+			if (selected == t)
+				return distances[t];
+			for (int k = 0; k < g.degree(selected); k++) {
+				int child = g.target(selected, k);
+				int discoveredDistance = distances[selected] + g.weight(selected, k);
+				if (discoveredDistance < distances[child]) {
+					distances[child] = discoveredDistance;
+					//A node that was already taken is put back, in case the heuristic is not consistent
+					S.insertOrDecrease(child, discoveredDistance + h.estimate(g.idAt(child), to));
+				}
+			}
+		}
+		return WeightedGraph.INFINITY;
+	}
+}
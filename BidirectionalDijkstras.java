@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+//Bidirectional Dijkstra's over dense indices, for WeightedGraph and CsrGraph. A forward search from the source and
+//a backward search over the reverse edges from the target take turns, and the best meeting point is final once
+//the two smallest keys add up to at least its weight.
+class BidirectionalDijkstras {
+
+	private BidirectionalDijkstras() {
+	}
+
+	//Weight of the shortest path from index s to index t (INFINITY if there is none) over the indices
+	//0 .. capacity - 1, for non-negative weights. reverse holds the same edges as forward, turned around
+	static int run(IndexedEdges forward, IndexedEdges reverse, int capacity, int s, int t) {
+		if (s == t)
+			return 0;
+		int[] fromSource = new int[capacity];
+		int[] toTarget = new int[capacity];
+		Arrays.fill(fromSource, WeightedGraph.INFINITY);
+		Arrays.fill(toTarget, WeightedGraph.INFINITY);
+		fromSource[s] = 0;
+		toTarget[t] = 0;
+		IndexedMinHeap F = new IndexedMinHeap(capacity);
+		IndexedMinHeap B = new IndexedMinHeap(capacity);
+		F.insert(s, 0);
+		B.insert(t, 0);
+		int best = WeightedGraph.INFINITY;
+
+		while (!F.isEmpty() && !B.isEmpty()) {
+			if (F.peekKey() + B.peekKey() >= best)
+				break;
+			//Expand the side whose frontier is closer
+			if (F.peekKey() <= B.peekKey())
+				best = expand(forward, F, fromSource, toTarget, best);
+			else
+				best = expand(reverse, B, toTarget, fromSource, best);
+		}
+		return best;
+	}
+
+	//Settles the top of one side's heap, returns the best meeting point so far
+	private static int expand(IndexedEdges edges, IndexedMinHeap S, int[] distances, int[] other, int best) {
+		int selected = S.poll();
+		for (int k = 0; k < edges.degree(selected); k++) {
+			int next = edges.target(selected, k);
+			int discoveredDistance = distances[selected] + edges.weight(selected, k);
+			if (discoveredDistance < distances[next]) {
+				distances[next] = discoveredDistance;
+				S.insertOrDecrease(next, discoveredDistance);
+			}
+			if (other[next] < WeightedGraph.INFINITY)
+				best = Math.min(best, discoveredDistance + other[next]);
+		}
+		return best;
+	}
+}
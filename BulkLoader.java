@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+//Adds a whole EdgeList to the nodes of a graph at once, on all cores and without a per-edge duplicate check.
+//The edges are bucketed by source with a counting sort (parallel counts and a prefix sum), and every bucket
+//is sorted by target, so duplicates end up next to each other and are settled by the DuplicateEdges policy.
+//All checks run before the graph changes, so a bad edge leaves the graph as it was. The children of every
+//node are then appended by one thread per node, and the parents in a second pass bucketed by target.
+class BulkLoader {
+
+	private static final long UPDATE = 1L << 31;
+	private static final long INDEX = UPDATE - 1;
+
+	private final VertexIndex nodes;
+	private final EdgeList edges;
+	private final DuplicateEdges policy;
+	private final boolean weighted;
+
+	//offsets[u] .. offsets[u] + kept[u] are the edges kept from dense index u, each packed as
+	//target << 32 | position in the list, with the UPDATE bit for an edge already in the graph
+	private final int[] offsets;
+	private final int[] kept;
+	private final long[] packed;
+	//The weight an updated edge had before apply, by its place in packed
+	private int[] previous;
+	//The position a new edge got among the children of its source, by its place in packed
+	private int[] slots;
+
+	//Checks every edge and settles the duplicates, throws a GraphException for the first bad edge in the list
+	BulkLoader(VertexIndex nodes, EdgeList edges, DuplicateEdges policy, boolean weighted) {
+		this.nodes = nodes;
+		this.edges = edges;
+		this.policy = policy;
+		this.weighted = weighted;
+		int n = edges.size();
+		int capacity = nodes.capacity();
+
+		int[] sources = new int[n];
+		int[] targets = new int[n];
+		AtomicInteger bad = new AtomicInteger(n);
+		range(n).forEach(i -> {
+			sources[i] = nodes.indexOf(edges.getFrom(i));
+			targets[i] = nodes.indexOf(edges.getTo(i));
+			if (sources[i] == IntIdMap.MISSING || targets[i] == IntIdMap.MISSING)
+				bad.accumulateAndGet(i, Math::min);
+		});
+		if (bad.get() < n) {
+			int i = bad.get();
+			throw new GraphException("Can't find node " + (sources[i] == IntIdMap.MISSING ? edges.getFrom(i) : edges.getTo(i)));
+		}
+
+		offsets = offsetsOf(sources, n, capacity);
+		AtomicIntegerArray cursor = new AtomicIntegerArray(Arrays.copyOf(offsets, capacity));
+		packed = new long[n];
+		range(n).forEach(i -> packed[cursor.getAndIncrement(sources[i])] = ((long) targets[i] << 32) | i);
+
+		kept = new int[capacity];
+		range(capacity).forEach(u -> settle(u, bad));
+		if (bad.get() < n) {
+			int i = bad.get();
+			throw new GraphException("Edge from " + edges.getFrom(i) + " to " + edges.getTo(i) + " already exists");
+		}
+	}
+
+	//Adds the edges to the graph, returns by how much the number of negative edges changed
+	int apply() {
+		int capacity = kept.length;
+		previous = new int[packed.length];
+		slots = new int[packed.length];
+		int delta = range(capacity).map(this::addChildren).sum();
+
+		//The parents of the new edges (with their positions among the children of the parent), bucketed by target
+		AtomicIntegerArray inCount = new AtomicIntegerArray(capacity);
+		range(capacity).forEach(u -> {
+			for (int e = offsets[u]; e < offsets[u] + kept[u]; e++) {
+				if ((packed[e] & UPDATE) == 0)
+					inCount.incrementAndGet(target(e));
+			}
+		});
+		int[] inOffsets = new int[capacity + 1];
+		for (int v = 0; v < capacity; v++)
+			inOffsets[v + 1] = inCount.get(v);
+		Arrays.parallelPrefix(inOffsets, Integer::sum);
+		int[] parents = new int[inOffsets[capacity]];
+		int[] childSlots = new int[inOffsets[capacity]];
+		AtomicIntegerArray cursor = new AtomicIntegerArray(Arrays.copyOf(inOffsets, capacity));
+		range(capacity).forEach(u -> {
+			for (int e = offsets[u]; e < offsets[u] + kept[u]; e++) {
+				if ((packed[e] & UPDATE) == 0) {
+					int k = cursor.getAndIncrement(target(e));
+					parents[k] = u;
+					childSlots[k] = slots[e];
+				}
+			}
+		});
+		range(capacity).forEach(v -> {
+			if (inOffsets[v] == inOffsets[v + 1])
+				return;
+			GraphNode node = nodes.nodeAt(v);
+			node.reserveParents(inOffsets[v + 1] - inOffsets[v]);
+			for (int k = inOffsets[v]; k < inOffsets[v + 1]; k++)
+				node.addParent(nodes.nodeAt(parents[k]), childSlots[k]);
+		});
+		return delta;
+	}
+
+	//Takes back what apply did, for an edit that turned out to be invalid (a cycle in a graph keeping a topological order)
+	void undo() {
+		range(kept.length).forEach(u -> {
+			GraphNode node = nodes.nodeAt(u);
+			for (int e = offsets[u]; e < offsets[u] + kept[u]; e++) {
+				GraphNode child = nodes.nodeAt(target(e));
+				if ((packed[e] & UPDATE) != 0)
+					node.setWeightOf(child, previous[e]);
+			}
+		});
+		//removeChild also changes the parents of the child, so this part is not split between threads
+		for (int u = 0; u < kept.length; u++) {
+			GraphNode node = nodes.nodeAt(u);
+			for (int e = offsets[u]; e < offsets[u] + kept[u]; e++) {
+				if ((packed[e] & UPDATE) == 0)
+					node.removeChild(nodes.nodeAt(target(e)));
+			}
+		}
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Sorts the bucket of u by target (and by position among equal targets), and moves one edge for every target
+	//to the front of the bucket. Lowers bad to the position of a duplicate when the policy is to throw
+	private void settle(int u, AtomicInteger bad) {
+		int lo = offsets[u];
+		int hi = offsets[u + 1];
+		if (lo == hi)
+			return;
+		Arrays.sort(packed, lo, hi);
+		GraphNode node = nodes.nodeAt(u);
+		int front = lo;
+		int e = lo;
+		while (e < hi) {
+			int v = target(e);
+			int end = e + 1;
+			while (end < hi && target(end) == v)
+				end++;
+			GraphNode child = nodes.nodeAt(v);
+			boolean exists = node.isChild(child);
+			if (policy == DuplicateEdges.THROW && (exists || end - e > 1))
+				bad.accumulateAndGet(position(exists ? e : e + 1), Math::min);
+			int winner = winner(e, end);
+			if (!exists)
+				packed[front++] = ((long) v << 32) | winner;
+			else if (policy == DuplicateEdges.KEEP_LAST || (policy == DuplicateEdges.KEEP_MIN && weight(winner) < node.getWeightOf(child)))
+				packed[front++] = ((long) v << 32) | UPDATE | winner;
+			e = end;
+		}
+		kept[u] = front - lo;
+	}
+
+	//The position in the list of the edge the policy keeps among the sorted entries e .. end - 1
+	private int winner(int e, int end) {
+		if (policy == DuplicateEdges.KEEP_LAST)
+			return position(end - 1);
+		int best = position(e);
+		if (policy == DuplicateEdges.KEEP_MIN) {
+			for (int k = e + 1; k < end; k++) {
+				if (weight(position(k)) < weight(best))
+					best = position(k);
+			}
+		}
+		return best;
+	}
+
+	//Appends the kept edges of u to its children (only u's own arrays change), returns the change in negative edges
+	private int addChildren(int u) {
+		GraphNode node = nodes.nodeAt(u);
+		if (kept[u] > 0)
+			node.reserveChildren(kept[u]);
+		int delta = 0;
+		for (int e = offsets[u]; e < offsets[u] + kept[u]; e++) {
+			GraphNode child = nodes.nodeAt(target(e));
+			int w = weight(position(e));
+			if ((packed[e] & UPDATE) != 0) {
+				previous[e] = node.getWeightOf(child);
+				if (previous[e] < 0)
+					delta--;
+				node.setWeightOf(child, w);
+			}
+			else
+				slots[e] = node.appendChild(child, w);
+			if (w < 0)
+				delta++;
+		}
+		return delta;
+	}
+
+	private int target(int e) {
+		return (int) (packed[e] >>> 32);
+	}
+
+	private int position(int e) {
+		return (int) (packed[e] & INDEX);
+	}
+
+	private int weight(int i) {
+		return weighted ? edges.getWeight(i) : 0;
+	}
+
+	//offsets[u] .. offsets[u + 1] - 1 is the bucket of key u, from parallel counts and a parallel prefix sum
+	private static int[] offsetsOf(int[] keys, int n, int capacity) {
+		AtomicIntegerArray count = new AtomicIntegerArray(capacity);
+		range(n).forEach(i -> count.incrementAndGet(keys[i]));
+		int[] offsets = new int[capacity + 1];
+		for (int u = 0; u < capacity; u++)
+			offsets[u + 1] = count.get(u);
+		Arrays.parallelPrefix(offsets, Integer::sum);
+		return offsets;
+	}
+
+	private static IntStream range(int n) {
+		IntStream ans = IntStream.range(0, n);
+		return (n >= Frontier.GRAIN) ? ans.parallel() : ans;
+	}
+}
@@ -0,0 +1,149 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+//The connected components of an undirected snapshot (every edge stored in both directions, see UndirectedGraph.freeze),
+//labeled on all cores with Afforest (Sutton et al.). Every node starts as its own tree. Trees are hooked together,
+//the larger root under the smaller one, with compare-and-set, first over a couple of edges of every node.
+//A sample of the nodes then finds the component that is most likely the giant one. Its nodes skip the rest of their edges,
+//because whatever those edges lead to already hangs under the same root. Nothing recurses.
+public class ConnectedComponents {
+
+	//Edges of every node linked before sampling
+	private static final int NEIGHBOR_ROUNDS = 2;
+	private static final int SAMPLES = 1024;
+
+	private final CsrGraph g;
+	//Component id (0..count-1) of every dense index of the snapshot
+	private final int[] labels;
+	private final int[] sizes;
+
+	public ConnectedComponents(CsrGraph g) {
+		this.g = g;
+		int n = g.getNodesNum();
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		AtomicIntegerArray parent = new AtomicIntegerArray(n);
+		forEachNode(n, u -> parent.set(u, u));
+
+		for (int r = 0; r < NEIGHBOR_ROUNDS; r++) {
+			int round = r;
+			forEachNode(n, u -> {
+				if (offsets[u] + round < offsets[u + 1])
+					link(parent, u, targets[offsets[u] + round]);
+			});
+			forEachNode(n, u -> compress(parent, u));
+		}
+
+		int giant = largestSampledRoot(parent, n);
+		forEachNode(n, u -> {
+			if (parent.get(u) == giant)
+				return;
+			for (int e = offsets[u] + NEIGHBOR_ROUNDS; e < offsets[u + 1]; e++)
+				link(parent, u, targets[e]);
+		});
+		forEachNode(n, u -> compress(parent, u));
+
+		//Every root becomes a dense component id, in order of its index
+		int[] id = new int[n];
+		int count = 0;
+		for (int u = 0; u < n; u++) {
+			if (parent.get(u) == u)
+				id[u] = count++;
+		}
+		labels = new int[n];
+		sizes = new int[count];
+		for (int u = 0; u < n; u++) {
+			labels[u] = id[parent.get(u)];
+			sizes[labels[u]]++;
+		}
+	}
+
+	/* -------
+	 * GETTERS
+	 * -------
+	 */
+
+	public int getComponentsNum() {
+		return sizes.length;
+	}
+
+	//Component id of node u
+	public int componentOf(int u) {
+		return labels[g.checkNode(u)];
+	}
+
+	public int getComponentSize(int c) {
+		return sizes[c];
+	}
+
+	//A copy of the component ids, indexed like the snapshot (see CsrGraph.idAt)
+	public int[] getLabels() {
+		return labels.clone();
+	}
+
+	//A copy of the number of nodes in every component, indexed by component id
+	public int[] getComponentSizes() {
+		return sizes.clone();
+	}
+
+	public CsrGraph getGraph() {
+		return g;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Joins the trees of u and v, hooking the larger of the two roots under the smaller one
+	private static void link(AtomicIntegerArray parent, int u, int v) {
+		int p1 = parent.get(u);
+		int p2 = parent.get(v);
+		while (p1 != p2) {
+			int high = Math.max(p1, p2);
+			int low = Math.min(p1, p2);
+			int pHigh = parent.get(high);
+			if (pHigh == low)
+				return;
+			if (pHigh == high && parent.compareAndSet(high, high, low))
+				return;
+			p1 = parent.get(parent.get(high));
+			p2 = parent.get(low);
+		}
+	}
+
+	//Points u straight at its root
+	private static void compress(AtomicIntegerArray parent, int u) {
+		while (parent.get(parent.get(u)) != parent.get(u))
+			parent.set(u, parent.get(parent.get(u)));
+	}
+
+	//The root that most of a random sample of the nodes point at
+	private static int largestSampledRoot(AtomicIntegerArray parent, int n) {
+		if (n == 0)
+			return -1;
+		IntIdMap counts = new IntIdMap(SAMPLES);
+		Random rand = new Random(n);
+		int best = parent.get(0);
+		int bestCount = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			int root = parent.get(rand.nextInt(n));
+			int count = (counts.containsKey(root) ? counts.get(root) : 0) + 1;
+			counts.put(root, count);
+			if (count > bestCount) {
+				best = root;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	private static void forEachNode(int n, IntConsumer action) {
+		IntStream nodes = IntStream.range(0, n);
+		if (n >= Frontier.GRAIN)
+			nodes = nodes.parallel();
+		nodes.forEach(action);
+	}
+}
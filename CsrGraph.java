@@ -0,0 +1,416 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+//An immutable compressed-sparse-row snapshot of a directed (optionally weighted) graph, or of an undirected graph
+//with every edge stored in both directions.
+//Nodes are renumbered to dense indices 0..n-1 (in ascending order of their data), and the children
+//of index u are targets[offsets[u]] .. targets[offsets[u+1]-1], with the matching weights alongside.
+public class CsrGraph {
+
+	private final int[] ids;
+	private final IntIdMap index;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final boolean negativeWeights;
+
+	//The reverse graph in the same form, built on first use
+	private int[] revOffsets;
+	private int[] revTargets;
+	private int[] revWeights;
+
+	/* ------------
+	 * CONSTRUCTORS
+	 * ------------
+	 */
+
+	//Use DirectedGraph.freeze(), WeightedGraph.freeze() or UndirectedGraph.freeze() to build a snapshot
+	CsrGraph(VertexIndex nodes, boolean weighted) {
+		int n = nodes.size();
+		ids = new int[n];
+		int u = 0;
+		for (int t : nodes.keySet())
+			ids[u++] = t;
+		Arrays.sort(ids);
+		index = new IntIdMap(n);
+		for (u = 0; u < n; u++)
+			index.put(ids[u], u);
+
+		offsets = new int[n + 1];
+		for (u = 0; u < n; u++)
+			offsets[u + 1] = offsets[u] + nodes.get(ids[u]).getOutDegree();
+
+		int m = offsets[n];
+		targets = new int[m];
+		weights = weighted ? new int[m] : null;
+		boolean negative = false;
+		for (u = 0; u < n; u++) {
+			GraphNode node = nodes.get(ids[u]);
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				targets[offsets[u] + k] = indexOf(node.getChildAt(k).getData());
+				if (weighted) {
+					weights[offsets[u] + k] = node.getWeightAt(k);
+					negative |= node.getWeightAt(k) < 0;
+				}
+			}
+		}
+		negativeWeights = negative;
+	}
+
+	//The nodes 0..n-1 (n = offsets.length-1) without weights, from arrays that are already in CSR form
+	CsrGraph(int[] offsets, int[] targets) {
+		int n = offsets.length - 1;
+		ids = new int[n];
+		index = new IntIdMap(n);
+		for (int u = 0; u < n; u++) {
+			ids[u] = u;
+			index.put(u, u);
+		}
+		this.offsets = offsets;
+		this.targets = targets;
+		weights = null;
+		negativeWeights = false;
+	}
+
+	//The same nodes and edges with other weights, sharing the arrays of g
+	CsrGraph(CsrGraph g, int[] weights) {
+		ids = g.ids;
+		index = g.index;
+		offsets = g.offsets;
+		targets = g.targets;
+		this.weights = weights;
+		boolean negative = false;
+		for (int e = 0; e < weights.length; e++)
+			negative |= weights[e] < 0;
+		negativeWeights = negative;
+	}
+
+	/* -------
+	 * GETTERS
+	 * -------
+	 */
+
+	public int getNodesNum() {
+		return ids.length;
+	}
+
+	public int getEdgesNum() {
+		return targets.length;
+	}
+
+	public boolean isNode(int u) {
+		return indexOf(u) >= 0;
+	}
+
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	public boolean positiveWeights() {
+		return !negativeWeights;
+	}
+
+	//Dense index of node u, or IntIdMap.MISSING if u is not in the snapshot
+	public int indexOf(int u) {
+		return index.get(u);
+	}
+
+	//The data of the node stored at dense index i
+	public int idAt(int i) {
+		return ids[i];
+	}
+
+	public int getOutDegree(int u) {
+		int i = checkNode(u);
+		return offsets[i + 1] - offsets[i];
+	}
+
+	//The arrays themselves, for the engines that run over the snapshot. They must not be modified
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	int[] getTargets() {
+		return targets;
+	}
+
+	//null for a snapshot without weights
+	int[] getWeights() {
+		return weights;
+	}
+
+	//The reverse graph's arrays, built on first use
+	int[] getReverseOffsets() {
+		buildReverse();
+		return revOffsets;
+	}
+
+	int[] getReverseTargets() {
+		buildReverse();
+		return revTargets;
+	}
+
+	/* ----------------
+	 * GRAPH ALGORITHMS
+	 * ----------------
+	 */
+
+	/* ------------------- TOPOLOGICAL SORT -------------------*/
+	public ArrayList<Integer> topologicalSort(){
+		int n = ids.length;
+		int[] inDegree = new int[n];
+		for (int e = 0; e < targets.length; e++)
+			inDegree[targets[e]]++;
+
+		//The answer is built in place, using the array itself as the queue of zero in-degree nodes
+		int[] order = new int[n];
+		int tail = 0;
+		for (int u = 0; u < n; u++) {
+			if (inDegree[u] == 0)
+				order[tail++] = u;
+		}
+		for (int head = 0; head < tail; head++) {
+			int selected = order[head];
+			for (int e = offsets[selected]; e < offsets[selected + 1]; e++) {
+				if (--inDegree[targets[e]] == 0)
+					order[tail++] = targets[e];
+			}
+		}
+		if (tail < n)
+			return null;
+		ArrayList<Integer> ans = new ArrayList<>(n);
+		for (int u = 0; u < n; u++)
+			ans.add(ids[order[u]]);
+		return ans;
+	}
+
+	/* ------------------- TARJAN -------------------*/
+	public ArrayList<LinkedList<Integer>> getStronglyConnectedComponents(){
+		return new StronglyConnectedComponents(this).getComponents();
+	}
+
+	/* ------------------- DIJKSTRA'S -------------------*/
+	//As in WeightedGraph, a stop node ends the search as soon as its distance is final
+	public HashMap<Integer, Integer> Dijkstras(int source, Integer stop, HashMap<Integer, Integer> pred){
+		int n = ids.length;
+		int s = checkNode(source);
+		int stopIndex = (stop == null) ? -1 : checkNode(stop);
+		int[] distances = newDistanceArray();
+		int[] parents = newParentArray();
+		distances[s] = 0;
+
+		//Nodes enter the heap only when they are discovered
+		IndexedMinHeap S = new IndexedMinHeap(n);
+		S.insert(s, 0);
+
+		while (!S.isEmpty()) {
+			int selected = S.poll();
+			if (selected == stopIndex)
+				break;
+			for (int e = offsets[selected]; e < offsets[selected + 1]; e++) {
+				int child = targets[e];
+				int discoveredDistance = distances[selected] + weightAt(e);
+				if (discoveredDistance < distances[child]) {
+					parents[child] = selected;
+					distances[child] = discoveredDistance;
+					S.insertOrDecrease(child, discoveredDistance);
+				}
+			}
+		}
+		return toMaps(distances, parents, pred);
+	}
+
+	//Distances from dense index s to every node (or from every node to s, over the reverse graph)
+	int[] distancesFrom(int s, boolean reverse) {
+		int[] distances = new int[ids.length];
+		distancesFrom(s, reverse, distances, new IndexedMinHeap(ids.length));
+		return distances;
+	}
+
+	//Same, filling the given array and using the given (empty) heap, so repeated searches allocate nothing
+	void distancesFrom(int s, boolean reverse, int[] distances, IndexedMinHeap S) {
+		if (negativeWeights)
+			throw new GraphException("Dijkstra's can't handle negative weights");
+		if (reverse)
+			buildReverse();
+		int[] off = reverse ? revOffsets : offsets;
+		int[] tar = reverse ? revTargets : targets;
+		int[] wei = reverse ? revWeights : weights;
+		Arrays.fill(distances, WeightedGraph.INFINITY);
+		distances[s] = 0;
+		S.insert(s, 0);
+		while (!S.isEmpty()) {
+			int selected = S.poll();
+			for (int e = off[selected]; e < off[selected + 1]; e++) {
+				int discoveredDistance = distances[selected] + (wei == null ? 0 : wei[e]);
+				if (discoveredDistance < distances[tar[e]]) {
+					distances[tar[e]] = discoveredDistance;
+					S.insertOrDecrease(tar[e], discoveredDistance);
+				}
+			}
+		}
+	}
+
+	/* ------------------- A* -------------------*/
+	//Weight of the shortest path from one node to another (INFINITY if there is none), for non-negative weights.
+	//Nodes are taken in order of distance from the source plus the heuristic's estimate of the rest of the way.
+	public int aStar(int from, int to, Heuristic h) {
+		if (negativeWeights)
+			throw new GraphException("A* can't handle negative weights");
+		return AStar.run(edges(), ids.length, checkNode(from), checkNode(to), h);
+	}
+
+	/* ------------------- BIDIRECTIONAL DIJKSTRA'S -------------------*/
+	//Weight of the shortest path from one node to another (INFINITY if there is none), for non-negative weights.
+	//A forward search from the source and a backward search over the reverse graph from the target take turns
+	public int bidirectionalDijkstras(int from, int to) {
+		if (negativeWeights)
+			throw new GraphException("Dijkstra's can't handle negative weights");
+		int s = checkNode(from);
+		int t = checkNode(to);
+		buildReverse();
+		return BidirectionalDijkstras.run(edges(), reverseEdges(), ids.length, s, t);
+	}
+
+	public int WeightOfShortestPathFromTo(int from, int to) {
+		if (!negativeWeights)
+			return bidirectionalDijkstras(from, to);
+		return bellmanFord(from, new HashMap<>()).get(to);
+	}
+
+	/* ------------------- BELLMAN FORD -------------------*/
+	//As in WeightedGraph, nodes on or reachable from a negative cycle get the distance MINUS_INFINITY
+	public HashMap<Integer, Integer> bellmanFord(int source, HashMap<Integer, Integer> pred){
+		int s = checkNode(source);
+		int[] distances = newDistanceArray();
+		int[] parents = newParentArray();
+		distances[s] = 0;
+		spfa(distances, parents);
+		return toMaps(distances, parents, pred);
+	}
+
+	public boolean hasNegativeCycle() {
+		return negativeWeights && spfa(new int[ids.length], newParentArray());
+	}
+
+	//Bellman-Ford (SPFA, see Spfa) from every node with a finite distance. Returns true if a negative cycle was found
+	boolean spfa(int[] distances, int[] parents) {
+		return Spfa.run(edges(), ids.length, distances, parents);
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	protected int checkNode(int u) {
+		int i = indexOf(u);
+		if (i < 0)
+			throw new GraphException("Can't find node " + u);
+		return i;
+	}
+
+	private int weightAt(int e) {
+		return weights == null ? 0 : weights[e];
+	}
+
+	//The edges for the algorithms shared with the other graphs
+	private IndexedEdges edges() {
+		return new IndexedEdges() {
+			@Override
+			public int degree(int u) {
+				return offsets[u + 1] - offsets[u];
+			}
+
+			@Override
+			public int target(int u, int k) {
+				return targets[offsets[u] + k];
+			}
+
+			@Override
+			public int weight(int u, int k) {
+				return weightAt(offsets[u] + k);
+			}
+
+			@Override
+			public int idAt(int u) {
+				return ids[u];
+			}
+		};
+	}
+
+	//The edges turned around, once buildReverse has run
+	private IndexedEdges reverseEdges() {
+		return new IndexedEdges() {
+			@Override
+			public int degree(int u) {
+				return revOffsets[u + 1] - revOffsets[u];
+			}
+
+			@Override
+			public int target(int u, int k) {
+				return revTargets[revOffsets[u] + k];
+			}
+
+			@Override
+			public int weight(int u, int k) {
+				return (revWeights == null) ? 0 : revWeights[revOffsets[u] + k];
+			}
+
+			@Override
+			public int idAt(int u) {
+				return ids[u];
+			}
+		};
+	}
+
+	private int[] newDistanceArray() {
+		int[] distances = new int[ids.length];
+		Arrays.fill(distances, WeightedGraph.INFINITY);
+		return distances;
+	}
+
+	private int[] newParentArray() {
+		int[] parents = new int[ids.length];
+		Arrays.fill(parents, -1);
+		return parents;
+	}
+
+	//Builds the reverse graph's offsets, targets and weights once, on first use
+	private synchronized void buildReverse() {
+		if (revOffsets != null)
+			return;
+		int n = ids.length;
+		int[] rOffsets = new int[n + 1];
+		int[] rTargets = new int[targets.length];
+		int[] rWeights = (weights == null) ? null : new int[targets.length];
+		for (int e = 0; e < targets.length; e++)
+			rOffsets[targets[e] + 1]++;
+		for (int u = 0; u < n; u++)
+			rOffsets[u + 1] += rOffsets[u];
+		int[] fill = Arrays.copyOf(rOffsets, n);
+		for (int from = 0; from < n; from++) {
+			for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+				int slot = fill[targets[e]]++;
+				rTargets[slot] = from;
+				if (rWeights != null)
+					rWeights[slot] = weights[e];
+			}
+		}
+		revTargets = rTargets;
+		revWeights = rWeights;
+		revOffsets = rOffsets;
+	}
+
+	//Translates dense distance and parent arrays back to the maps returned by the mutable graphs
+	private HashMap<Integer, Integer> toMaps(int[] distances, int[] parents, HashMap<Integer, Integer> pred) {
+		HashMap<Integer, Integer> ans = new HashMap<>();
+		for (int u = 0; u < ids.length; u++) {
+			ans.put(ids[u], distances[u]);
+			pred.put(ids[u], parents[u] < 0 ? null : ids[parents[u]]);
+		}
+		return ans;
+	}
+}
@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+//Parallel single-source shortest paths over a snapshot with non-negative weights (Meyer and Sanders' delta-stepping).
+//Tentative distances are grouped in buckets of width delta. The nodes of the lowest bucket are expanded together,
+//first over their light edges (weight <= delta, which may refill the same bucket) and, once the bucket stays empty,
+//over their heavy edges. Each node's distance and predecessor are packed in one long and lowered with compare-and-set.
+public class DeltaStepping {
+
+	//Frontiers smaller than this are expanded by the calling thread alone
+	private static final int GRAIN = 256;
+	//Every tentative distance is within the largest weight of the current bucket, so the buckets form a ring of
+	//maxWeight / delta + 2. A delta that needs more than this many is rejected
+	static final int MAX_BUCKETS = 1 << 20;
+
+	private final CsrGraph g;
+	private final int delta;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final int bucketsNum;
+
+	public DeltaStepping(CsrGraph g, int delta) {
+		if (!g.positiveWeights())
+			throw new GraphException("Delta-stepping can't handle negative weights");
+		if (delta < 1)
+			throw new GraphException("Delta must be positive: " + delta);
+		this.g = g;
+		this.delta = delta;
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+		weights = g.getWeights();
+		int max = maxWeight(weights);
+		if (max / delta + 2 > MAX_BUCKETS)
+			throw new GraphException("Delta " + delta + " is too small for weights up to " + max + ", it must be at least "
+					+ (max / (MAX_BUCKETS - 1) + 1));
+		bucketsNum = max / delta + 2;
+	}
+
+	//A delta of about the largest weight over the average out-degree, a common starting point for tuning
+	public DeltaStepping(CsrGraph g) {
+		this(g, defaultDelta(g));
+	}
+
+	//Distances from source (INFINITY where unreachable), and the predecessors in pred, like WeightedGraph.Dijkstras
+	public HashMap<Integer, Integer> shortestPathsFrom(int source, HashMap<Integer, Integer> pred) {
+		int n = g.getNodesNum();
+		int[] distances = new int[n];
+		int[] parents = new int[n];
+		run(g.checkNode(source), distances, parents);
+		HashMap<Integer, Integer> ans = new HashMap<>();
+		for (int u = 0; u < n; u++) {
+			ans.put(g.idAt(u), distances[u]);
+			pred.put(g.idAt(u), parents[u] < 0 ? null : g.idAt(parents[u]));
+		}
+		return ans;
+	}
+
+	public int distanceFromTo(int from, int to) {
+		int n = g.getNodesNum();
+		int[] distances = new int[n];
+		run(g.checkNode(from), distances, new int[n]);
+		return distances[g.checkNode(to)];
+	}
+
+	//Fills distances and parents (-1 for none) of every dense index, from dense index s
+	void run(int s, int[] distances, int[] parents) {
+		int n = g.getNodesNum();
+		AtomicLongArray state = new AtomicLongArray(n);
+		for (int u = 0; u < n; u++)
+			state.set(u, pack(WeightedGraph.INFINITY, -1));
+		state.set(s, pack(0, -1));
+
+		//Buckets are reused cyclically, and each list is only made once a node goes into it
+		IntList[] buckets = new IntList[bucketsNum];
+		//The bucket a node is queued in (-1 for none), so a node is queued once per bucket
+		int[] queued = new int[n];
+		Arrays.fill(queued, -1);
+		buckets[0] = new IntList();
+		buckets[0].add(s);
+		queued[s] = 0;
+		long pending = 1;
+
+		IntList frontier = new IntList();
+		IntList settled = new IntList();
+		for (int b = 0; pending > 0; b++) {
+			IntList bucket = buckets[b % bucketsNum];
+			if (bucket == null || bucket.isEmpty())
+				continue;
+			settled.clear();
+			while (!bucket.isEmpty()) {
+				//Take the bucket, skipping nodes whose distance has since moved them to a lower bucket
+				frontier.clear();
+				for (int i = 0; i < bucket.size(); i++) {
+					int u = bucket.get(i);
+					if (queued[u] == b) {
+						queued[u] = -1;
+						frontier.add(u);
+					}
+				}
+				pending -= bucket.size();
+				bucket.clear();
+				settled.addAll(frontier);
+				pending += enqueue(relax(frontier, state, true), state, buckets, queued);
+			}
+			pending += enqueue(relax(settled, state, false), state, buckets, queued);
+		}
+
+		for (int u = 0; u < n; u++) {
+			long packed = state.get(u);
+			distances[u] = distanceOf(packed);
+			parents[u] = parentOf(packed);
+		}
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Relaxes the light (or heavy) edges of the nodes, and returns for each worker the nodes whose distance it lowered
+	private IntList[] relax(IntList nodes, AtomicLongArray state, boolean light) {
+		int size = nodes.size();
+		int chunks = (size < GRAIN) ? 1 : Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, size / GRAIN + 1);
+		IntList[] improved = new IntList[chunks];
+		if (chunks == 1)
+			improved[0] = relaxRange(nodes, 0, size, state, light);
+		else
+			IntStream.range(0, chunks).parallel().forEach(c ->
+				improved[c] = relaxRange(nodes, (int) ((long) size * c / chunks), (int) ((long) size * (c + 1) / chunks), state, light));
+		return improved;
+	}
+
+	private IntList relaxRange(IntList nodes, int from, int to, AtomicLongArray state, boolean light) {
+		IntList improved = new IntList();
+		for (int i = from; i < to; i++) {
+			int u = nodes.get(i);
+			int du = distanceOf(state.get(u));
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int w = (weights == null) ? 0 : weights[e];
+				if ((w <= delta) != light)
+					continue;
+				if (lower(state, targets[e], du + w, u))
+					improved.add(targets[e]);
+			}
+		}
+		return improved;
+	}
+
+	//Atomic minimum on the distance of v, with the predecessor set in the same step
+	private static boolean lower(AtomicLongArray state, int v, int distance, int parent) {
+		long update = pack(distance, parent);
+		while (true) {
+			long current = state.get(v);
+			if (distanceOf(current) <= distance)
+				return false;
+			if (state.compareAndSet(v, current, update))
+				return true;
+		}
+	}
+
+	//Puts the improved nodes in the buckets of their current distances, returns how many entries were added
+	private int enqueue(IntList[] improved, AtomicLongArray state, IntList[] buckets, int[] queued) {
+		int added = 0;
+		for (IntList list : improved) {
+			for (int i = 0; i < list.size(); i++) {
+				int v = list.get(i);
+				int b = distanceOf(state.get(v)) / delta;
+				if (queued[v] != b) {
+					queued[v] = b;
+					if (buckets[b % buckets.length] == null)
+						buckets[b % buckets.length] = new IntList();
+					buckets[b % buckets.length].add(v);
+					added++;
+				}
+			}
+		}
+		return added;
+	}
+
+	private static int maxWeight(int[] weights) {
+		int max = 0;
+		if (weights != null) {
+			for (int w : weights)
+				max = Math.max(max, w);
+		}
+		return max;
+	}
+
+	private static int defaultDelta(CsrGraph g) {
+		int[] weights = g.getWeights();
+		if (weights == null || weights.length == 0)
+			return 1;
+		int max = maxWeight(weights);
+		int averageDegree = Math.max(1, weights.length / Math.max(1, g.getNodesNum()));
+		return Math.max(max / (MAX_BUCKETS - 1) + 1, max / averageDegree);
+	}
+
+	private static long pack(int distance, int parent) {
+		return ((long) distance << 32) | (parent & 0xffffffffL);
+	}
+
+	private static int distanceOf(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	private static int parentOf(long packed) {
+		return (int) packed;
+	}
+}
@@ -1,22 +1,35 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
 
 /* ------------
  * CONSTRUCTORS
  * ------------
  */
 public class DirectedGraph {
-	protected HashMap <Integer, GraphNode> nodes;
+	//From this many nodes (and with more than one core) the queries that have one switch to a parallel engine
+	static final int PARALLEL_NODES = 1 << 18;
+	
+	protected VertexIndex nodes;
+	
+	//Built on the second reachability query in a row without edits, and dropped by every edit
+	private ReachabilityIndex reachability;
+	private int reachQueries;
+	
+	//The online topological order, null unless keepTopologicalOrder() was called
+	private TopologicalOrder order;
 	
 	public DirectedGraph() {
-		nodes = new HashMap<Integer, GraphNode>();
+		nodes = new VertexIndex();
 	}
 	
 	//Constructs a directed graph by converting each edge of an undirected graph to two opposing edges
@@ -27,19 +40,16 @@ public class DirectedGraph {
 	//Copy constructor
 	public DirectedGraph(DirectedGraph other) {
 		this();
-		for (Map.Entry<Integer, GraphNode> entry : other.nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode node = new GraphNode(original.getData());
-			nodes.put(node.getData(), node);
+		for (int t : other.nodes.keySet()) {
+			GraphNode node = new GraphNode(t);
+			nodes.put(t, node);
 			}
-		for (Map.Entry<Integer, GraphNode> entry : other.nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode copy = nodes.get(original.getData());
-			Iterator<GraphNode> i = original.getChildrenIterator();
-			while (i.hasNext()) {
-				int u = i.next().getData();
-				GraphNode child = nodes.get(u);
-				copy.addChild(child);
+		for (int t : other.nodes.keySet()) {
+			GraphNode original = other.nodes.get(t);
+			GraphNode copy = nodes.get(t);
+			for (int k = 0; k < original.getOutDegree(); k++) {
+				GraphNode child = nodes.get(original.getChildAt(k).getData());
+				copy.addChild(child, original.getWeightAt(k));
 			}
 		}
 	}
@@ -84,43 +94,67 @@ public class DirectedGraph {
 			throw new GraphException("Node " + u + " is already in the graph");
 		GraphNode node = new GraphNode(u);
 		nodes.put(u, node);
+		if (order != null)
+			order.addNode(node.getIndex());
+		structureChanged();
 	}
 	
 	public void connectFromTo(int from, int to) {
-		if (!isEdgeFromTo(from, to))
+		checkNodes(from, to);
+		if (!isEdgeFromTo(from, to)) {
+			orderEdge(from, to);
 			nodes.get(from).addChild(nodes.get(to));
+			structureChanged();
+		}
 		else
 			throw new GraphException("Edge from " + from + " to " + to + " already exists");
 		
 	}
 	
+	//Adds every edge of the list at once, sorting them by node on all cores instead of checking them one at a time.
+	//Both ends of every edge must already be nodes. The weights in the list are ignored
+	public void connectAll(EdgeList edges, DuplicateEdges policy) {
+		bulkConnect(edges, policy, false);
+	}
+	
+	//The i-th edge goes from from[i] to to[i], throws if an edge is listed twice or already exists
+	public void connectAll(int[] from, int[] to) {
+		connectAll(new EdgeList(from, to, null), DuplicateEdges.THROW);
+	}
+	
+	public void connectAll(Stream<Edge> edges, DuplicateEdges policy) {
+		EdgeList list = edges.collect(EdgeList::new, EdgeList::add, EdgeList::addAll);
+		connectAll(list, policy);
+	}
+	
 	public void disconnectFromTo(int from, int to) {
-		if (isEdgeFromTo(from, to))
+		if (isEdgeFromTo(from, to)) {
 			nodes.get(from).removeChild(nodes.get(to));
+			structureChanged();
+		}
 		else
 			throw new GraphException("No edge from " + from + " to " + to);
 	}
 	
 	public void disconnect(int u) {
 		checkNode(u);
-		Iterator<Integer> i = iterateChildren(u);
+		GraphNode node = nodes.get(u);
 		
-		//Disconnect all outgoing edges:
-		while(i.hasNext()) {
-			int child = i.next();
-			disconnectFromTo(u, child);
-		}
+		//Disconnect all outgoing edges, last child first:
+		while (node.getOutDegree() > 0)
+			disconnectFromTo(u, node.getChildAt(node.getOutDegree() - 1).getData());
 		
-		//Disconnect all incoming edges:
-		for (int t : nodes.keySet()){
-			if (isEdgeFromTo(t, u))
-				disconnectFromTo(t, u);
-		}
+		//Disconnect all incoming edges, found through the parents of u:
+		while (node.getInDegree() > 0)
+			disconnectFromTo(node.getParentAt(node.getInDegree() - 1).getData(), u);
 	}
 	
 	public void removeNode(int u) {
 		disconnect(u); 
+		if (order != null)
+			order.removeNode(nodes.indexOf(u));
 		nodes.remove(u);
+		structureChanged();
 	}
 	
 	public int getInDegree(int u) {
@@ -136,25 +170,36 @@ public class DirectedGraph {
 	 *--------
 	 */
 	public boolean isDAG() {
-		return topologicalSort()!=null;
+		if (order != null)
+			return true;
+		return kahn(new int[nodes.size()]) == nodes.size();
 	}
 	
 	public boolean isEdgeFromTo(int from, int to) {
-		if (nodes.keySet().contains(from) && nodes.keySet().contains(to))
-			return nodes.get(from).isChild(nodes.get(to));
+		GraphNode u = nodes.get(from);
+		GraphNode v = nodes.get(to);
+		if (u != null && v != null)
+			return u.isChild(v);
 		return false;
 	}
 	
 	public boolean canReachFromTo(int from, int to) {
-		HashMap<Integer, Boolean> visited = new HashMap<>();
-		for (int t : nodes.keySet())
-			visited.put(t, false);
-		canReachFromTo(from, to, visited);
-		return canReachFromTo(from, to, visited);
+		checkNodes(from, to);
+		//A single query right after an edit is cheaper as a search than as a new index
+		if (reachability == null && reachQueries++ == 0)
+			return searchFromTo(nodes.indexOf(from), nodes.indexOf(to));
+		return reachability().canReachFromTo(from, to);
+	}
+	
+	//Reachability over a snapshot of the graph, kept until the next edit
+	public ReachabilityIndex reachability() {
+		if (reachability == null)
+			reachability = new ReachabilityIndex(freeze());
+		return reachability;
 	}
 	
 	public boolean isNode(int u) {
-		return nodes.keySet().contains(u);
+		return nodes.containsKey(u);
 	}
 	
 	//checks if every edge has an opposite edge
@@ -191,7 +236,7 @@ public class DirectedGraph {
 	}
 	
 	public int getNodesNum() {
-		return nodes.keySet().size();
+		return nodes.size();
 	}
 	
 	public int getEdgesNum() {
@@ -220,16 +265,40 @@ public class DirectedGraph {
 		return children;
 	}
 	
+	public Iterator<Integer> iterateParents(int u){
+		return getAllParents(u).iterator();
+	}
+	
+	//The nodes with an edge to u
+	public Set<Integer> getAllParents(int u) {
+		checkNode(u);
+		Set<Integer> parents = new HashSet<>();
+		Iterator<GraphNode> i = nodes.get(u).getParentsIterator();
+		while (i.hasNext())
+			parents.add(i.next().getData());
+		return parents;
+	}
+	
+	//Immutable array-based snapshot for read-heavy workloads, it does not follow later edits of the graph
+	public CsrGraph freeze() {
+		return new CsrGraph(nodes, false);
+	}
+	
+	//Writes a snapshot to a binary file that MappedGraph.open maps back without parsing it
+	public void save(Path file) throws IOException {
+		MappedGraph.write(freeze(), file);
+	}
+	
+	//The children of every node in the reverse are its parents here, so no edge needs a duplicate check
 	public DirectedGraph getReverse(){
 		DirectedGraph rev = new DirectedGraph();
 		for (int t : nodes.keySet())
 			rev.addNode(t);
-		for (int parent : nodes.keySet()) {
-			Iterator<GraphNode> i = nodes.get(parent).getChildrenIterator();
-			while (i.hasNext()) {
-				int child = i.next().getData();
-				rev.connectFromTo(child, parent);
-			}
+		for (int t : nodes.keySet()) {
+			GraphNode node = nodes.get(t);
+			GraphNode copy = rev.nodes.get(t);
+			for (int k = 0; k < node.getInDegree(); k++)
+				copy.addChild(rev.nodes.get(node.getParentAt(k).getData()));
 		}
 		return rev;
 	}
@@ -240,69 +309,99 @@ public class DirectedGraph {
 	 */
 	
 	/* ------------------- TOPOLOGICAL SORT -------------------*/
+	//Kahn's algorithm, null if the graph has a cycle. Read from the online order when the graph keeps one
 	public ArrayList<Integer> topologicalSort(){
-		DirectedGraph copy = new DirectedGraph(this);
-		ArrayList<Integer> ans = new ArrayList<>();
-		LinkedList<Integer> zeroDeg = new LinkedList<>();
-		for (int t : copy.nodes.keySet()) {
-			if(copy.nodes.get(t).getInDegree() == 0)
-				zeroDeg.add(t);
-		}
-		while (!zeroDeg.isEmpty()) {
-			int selected = zeroDeg.removeFirst();
-			ans.add(selected);
-			copy.removeNode(selected);
-			Iterator<Integer> i = iterateChildren(selected);
-			while(i.hasNext()) {
-				int child = i.next();
-				if (copy.getInDegree(child) == 0)
-					zeroDeg.add(child);
-			}
-		}
-		if (copy.nodes.isEmpty())
-			return ans;
-		else 
+		if (order != null)
+			return order.toList();
+		int[] sorted = new int[nodes.size()];
+		if (kahn(sorted) < sorted.length)
 			return null;
+		ArrayList<Integer> ans = new ArrayList<>(sorted.length);
+		for (int u : sorted)
+			ans.add(nodes.nodeAt(u).getData());
+		return ans;
 	}
 	
-	/* ------------------- KOSARAJU-SHARIR -------------------*/
-	public ArrayList<LinkedList<Integer>> getStronglyConnectedComponents(){
-		//Make an array for every SOC:
-		ArrayList<LinkedList<Integer>> ans = new ArrayList<>();
-		
-		//Compute G-rev:
-		DirectedGraph gRev = getReverse();
-		
-		//The stack will be used for the nodes of gRev, in order of their time of leaving
-		Stack<Integer> s = new Stack<>();
-		
-		//Init a data structure to help the traversal
-		HashMap<Integer, Boolean> visited = new HashMap<>();
-		for (int t : nodes.keySet())
-			visited.put(t, false);
-		
-		//Traverse the graph recursively (and begin again when stuck) and put a vertex in the stack once we "leave" it
-		for (int u : gRev.nodes.keySet()) {
-			if (Boolean.FALSE.equals(visited.get(u)))
-				gRev.directedDFS1(u, visited, s);
+	//Online mode: from now on the graph keeps a topological order up to date as edges are added,
+	//reordering only the nodes between the two ends of a new edge, and connectFromTo throws on an edge
+	//that would close a cycle (without adding it). isDAG() and topologicalSort() then just read the order.
+	//Throws if the graph already has a cycle
+	public void keepTopologicalOrder() {
+		if (order != null)
+			return;
+		int[] sorted = new int[nodes.size()];
+		if (kahn(sorted) < sorted.length)
+			throw new GraphException("Graph has a cycle, can't keep a topological order");
+		order = new TopologicalOrder(nodes, sorted);
+	}
+	
+	public boolean isKeepingTopologicalOrder() {
+		return order != null;
+	}
+	
+	//The nodes grouped by level: the first level has the nodes without incoming edges, and every other node
+	//comes one level after its last parent. The nodes of a level are expanded in parallel. null if the graph has a cycle
+	public ArrayList<ArrayList<Integer>> topologicalLayers(){
+		AtomicIntegerArray inDegree = new AtomicIntegerArray(nodes.capacity());
+		IntList level = new IntList();
+		for (int u = 0; u < nodes.capacity(); u++) {
+			GraphNode node = nodes.nodeAt(u);
+			if (node == null)
+				continue;
+			inDegree.set(u, node.getInDegree());
+			if (node.getInDegree() == 0)
+				level.add(u);
 		}
+		ArrayList<ArrayList<Integer>> ans = new ArrayList<>();
+		int ordered = 0;
+		while (!level.isEmpty()) {
+			ArrayList<Integer> layer = new ArrayList<>(level.size());
+			for (int i = 0; i < level.size(); i++)
+				layer.add(nodes.nodeAt(level.get(i)).getData());
+			ans.add(layer);
+			ordered += level.size();
+			level = Frontier.expand(level, (u, next) -> {
+				GraphNode node = nodes.nodeAt(u);
+				for (int k = 0; k < node.getOutDegree(); k++) {
+					int child = node.getChildAt(k).getIndex();
+					if (inDegree.decrementAndGet(child) == 0)
+						next.add(child);
+				}
+			});
+		}
+		return (ordered == nodes.size()) ? ans : null;
+	}
+	
+	/* ------------------- BREADTH FIRST SEARCH -------------------*/
+	//The tree of the paths with the fewest edges from a node, each layer of the search expanded in parallel
+	public DirectedGraph bfsTree(int from) {
+		checkNode(from);
+		int[] parent = makeParentArray();
+		int[] layer = new int[nodes.capacity()];
+		Arrays.fill(layer, -1);
 		
-		//Init visited again because we traverse another graph:
-		for (int t : nodes.keySet())
-			visited.put(t, false);
+		new ParallelBfs(nodes).run(nodes.indexOf(from), -1, parent, layer);
 		
-		while(!s.isEmpty()) {
-			int v = s.pop();
-			if (Boolean.FALSE.equals(visited.get(v))){
-				LinkedList<Integer> soc = new LinkedList<>();
-				//And everyone reachable from v in the original graph, including v
-				directedDFS2(v, visited, soc);	
-				//Add soc to the general answer
-				ans.add(soc);
-			}	
-		}
-		return ans;
-	}	
+		return makeTree(parent);
+	}
+	
+	//Hop counts from many sources at once, with one multi-source BFS for every 64 of them (see MultiSourceBfs)
+	public HopDistances hopDistancesFrom(int... sources) {
+		return new MultiSourceBfs(freeze()).distancesFrom(sources);
+	}
+	
+	/* ------------------- TARJAN -------------------*/
+	public ArrayList<LinkedList<Integer>> getStronglyConnectedComponents(){
+		return stronglyConnectedComponents().getComponents();
+	}
+	
+	//Component ids over a snapshot of the graph, with the condensation DAG on request
+	public StronglyConnectedComponents stronglyConnectedComponents() {
+		CsrGraph g = freeze();
+		if (g.getNodesNum() >= PARALLEL_NODES && ForkJoinPool.getCommonPoolParallelism() > 1)
+			return new ParallelStronglyConnectedComponents(g).components();
+		return new StronglyConnectedComponents(g);
+	}
 	
 	/* -------
 	 * UTILITY
@@ -318,46 +417,104 @@ public class DirectedGraph {
 		checkNode(u);
 		checkNode(v);
 	}
-		
-	private void directedDFS1(int current, HashMap<Integer, Boolean> visited, Stack<Integer> s) {
-		visited.put(current, true);
-		Iterator<GraphNode> i = nodes.get(current).getChildrenIterator();
-		while (i.hasNext()) {
-			int next = i.next().getData();
-			if (Boolean.FALSE.equals(visited.get(next)))
-				directedDFS1(next, visited, s);
+	
+	//The nodes of the graph with an edge from parent[i] to i, for the dense indices i that have a parent
+	protected DirectedGraph makeTree(int[] parent) {
+		DirectedGraph tree = new DirectedGraph();
+		for (int t : nodes.keySet())
+			tree.addNode(t);
+		for (int i = 0; i < parent.length; i++) {
+			if (parent[i] != -1)
+				tree.connectFromTo(nodes.nodeAt(parent[i]).getData(), nodes.nodeAt(i).getData());
 		}
-		s.push(current);
+		return tree;
 	}
 	
-	private void directedDFS2(int current, HashMap<Integer, Boolean> visited, LinkedList<Integer> soc) {
-		visited.put(current, true);
-		Iterator<GraphNode> i = nodes.get(current).getChildrenIterator();
-		while (i.hasNext()) {
-			int next = i.next().getData();
-			if (Boolean.FALSE.equals(visited.get(next)))
-				directedDFS2(next, visited, soc);
+	//Per-node parents for the searches, indexed by the dense indices of the nodes (-1 for none)
+	protected int[] makeParentArray() {
+		int[] parents = new int[nodes.capacity()];
+		Arrays.fill(parents, -1);
+		return parents;
+	}
+		
+	//Kahn's algorithm over dense indices, on the in-degrees kept by the nodes. Fills order with the dense indices
+	//in topological order (the array itself is the queue of nodes left without incoming edges) and returns how many
+	//were ordered, fewer than all the nodes if there is a cycle
+	private int kahn(int[] order) {
+		int[] inDegree = new int[nodes.capacity()];
+		int tail = 0;
+		for (int u = 0; u < nodes.capacity(); u++) {
+			GraphNode node = nodes.nodeAt(u);
+			if (node == null)
+				continue;
+			inDegree[u] = node.getInDegree();
+			if (inDegree[u] == 0)
+				order[tail++] = u;
+		}
+		for (int head = 0; head < tail; head++) {
+			GraphNode node = nodes.nodeAt(order[head]);
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				int child = node.getChildAt(k).getIndex();
+				if (--inDegree[child] == 0)
+					order[tail++] = child;
+			}
 		}
-		soc.add(current);
+		return tail;
 	}
 	
-	private boolean canReachFromTo(int current, Integer stop, HashMap<Integer, Boolean> visited) {
-		System.out.println();
-		
-		if (current == stop)
+	//Depth-first search over dense indices, stopping as soon as it reaches target
+	private boolean searchFromTo(int source, int target) {
+		if (source == target)
 			return true;
-		else {
-			visited.put(current, true);
-			Iterator<GraphNode> i = nodes.get(current).getChildrenIterator();
-			while (i.hasNext()) {
-				int next = i.next().getData();
-				if (Boolean.FALSE.equals(visited.get(next)))
-					return canReachFromTo(next, stop, visited);
+		boolean[] visited = new boolean[nodes.capacity()];
+		int[] stack = new int[nodes.size()];
+		int top = 0;
+		stack[top++] = source;
+		visited[source] = true;
+		while (top > 0) {
+			GraphNode node = nodes.nodeAt(stack[--top]);
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				int child = node.getChildAt(k).getIndex();
+				if (child == target)
+					return true;
+				if (!visited[child]) {
+					visited[child] = true;
+					stack[top++] = child;
+				}
 			}
 		}
 		return false;
 	}
 	
+	//Adds the edges through a BulkLoader, returns by how much the number of negative edges changed.
+	//A topological order is built again from scratch, since that is linear in the edges anyway
+	protected int bulkConnect(EdgeList edges, DuplicateEdges policy, boolean weighted) {
+		BulkLoader loader = new BulkLoader(nodes, edges, policy, weighted);
+		int delta = loader.apply();
+		structureChanged();
+		if (order != null) {
+			int[] sorted = new int[nodes.size()];
+			if (kahn(sorted) < nodes.size()) {
+				loader.undo();
+				throw new GraphException("The new edges close a cycle");
+			}
+			order = new TopologicalOrder(nodes, sorted);
+		}
+		return delta;
+	}
+	
+	//In the online topological mode, reorders the nodes for a new edge before it is added, or throws if it closes a cycle
+	protected void orderEdge(int from, int to) {
+		if (order != null)
+			order.addEdge(nodes.indexOf(from), nodes.indexOf(to));
+	}
+	
+	//Called by every edit of the nodes or edges, drops what was built for the old graph
+	protected void structureChanged() {
+		reachability = null;
+		reachQueries = 0;
+	}
+	
 	protected Integer getRandNode() {
 		Random rand = new Random();
 		int winner = rand.nextInt(nodes.size());
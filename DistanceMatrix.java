@@ -0,0 +1,33 @@
+//Weights of all shortest paths of a graph, as one flat row-major int[] over the dense indices of its snapshot.
+//Unreachable pairs hold WeightedGraph.INFINITY.
+public class DistanceMatrix {
+
+	private final CsrGraph g;
+	private final int[] distances;
+
+	DistanceMatrix(CsrGraph g, int[] distances) {
+		this.g = g;
+		this.distances = distances;
+	}
+
+	public int getNodesNum() {
+		return g.getNodesNum();
+	}
+
+	public int get(int from, int to) {
+		int n = g.getNodesNum();
+		return distances[g.checkNode(from) * n + g.checkNode(to)];
+	}
+
+	//A copy of the distances from one node, indexed like the snapshot (see CsrGraph.idAt)
+	public int[] getRow(int from) {
+		int n = g.getNodesNum();
+		int[] row = new int[n];
+		System.arraycopy(distances, g.checkNode(from) * n, row, 0, n);
+		return row;
+	}
+
+	public CsrGraph getGraph() {
+		return g;
+	}
+}
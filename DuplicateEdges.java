@@ -0,0 +1,11 @@
+//What connectAll does with an edge that is listed more than once, or that is already in the graph
+public enum DuplicateEdges {
+	//Throw a GraphException before changing the graph, like connectFromTo does
+	THROW,
+	//Keep the edge already in the graph, or else the first one listed
+	KEEP_FIRST,
+	//Keep the weight of the last one listed, also over an edge already in the graph
+	KEEP_LAST,
+	//Keep the smallest weight, counting an edge already in the graph
+	KEEP_MIN
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+//A growable list of edges kept in three primitive arrays, so that millions of edges cost no objects.
+//Edges are kept in the order they were added, which is the order the duplicate policies of connectAll refer to
+public class EdgeList {
+
+	private int[] from;
+	private int[] to;
+	private int[] weights;
+	private int size;
+
+	public EdgeList() {
+		this(16);
+	}
+
+	public EdgeList(int capacity) {
+		capacity = Math.max(1, capacity);
+		from = new int[capacity];
+		to = new int[capacity];
+		weights = new int[capacity];
+	}
+
+	//The i-th edge goes from from[i] to to[i] with weight weights[i] (0 for every edge if weights is null).
+	//The arrays are copied
+	public EdgeList(int[] from, int[] to, int[] weights) {
+		if (from.length != to.length || (weights != null && weights.length != from.length))
+			throw new GraphException("Edge arrays of different lengths");
+		size = from.length;
+		this.from = Arrays.copyOf(from, Math.max(1, size));
+		this.to = Arrays.copyOf(to, Math.max(1, size));
+		this.weights = (weights == null) ? new int[Math.max(1, size)] : Arrays.copyOf(weights, Math.max(1, size));
+	}
+
+	public void add(int u, int v) {
+		add(u, v, 0);
+	}
+
+	public void add(int u, int v, int w) {
+		if (size == from.length)
+			grow(size * 2);
+		from[size] = u;
+		to[size] = v;
+		weights[size] = w;
+		size++;
+	}
+
+	public void add(Edge e) {
+		add(e.getFrom(), e.getTo(), e.getWeight());
+	}
+
+	public void addAll(EdgeList other) {
+		if (size + other.size > from.length)
+			grow(Math.max(size + other.size, from.length * 2));
+		System.arraycopy(other.from, 0, from, size, other.size);
+		System.arraycopy(other.to, 0, to, size, other.size);
+		System.arraycopy(other.weights, 0, weights, size, other.size);
+		size += other.size;
+	}
+
+	public int getFrom(int i) {
+		return from[i];
+	}
+
+	public int getTo(int i) {
+		return to[i];
+	}
+
+	public int getWeight(int i) {
+		return weights[i];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private void grow(int capacity) {
+		from = Arrays.copyOf(from, capacity);
+		to = Arrays.copyOf(to, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+	}
+}
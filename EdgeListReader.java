@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+//Reads a text edge list into a graph, on all cores. Takes SNAP lines ("u v", or "u v w") and DIMACS .gr lines ("a u v w"),
+//skipping empty lines, comments (starting with #, % or c) and the DIMACS problem line ("p sp n m", whose nodes 1..n are all added).
+//The file is cut into byte ranges that are mapped and parsed in parallel, straight from the bytes into an EdgeList.
+//A range owns the lines that start in it, so it skips the end of a line that started before it and reads past its
+//end to finish its last line. A line that cannot be read is counted as malformed and skipped.
+//The nodes are every id in an edge, and the edges go into the graph with one bulk load (see DirectedGraph.connectAll)
+public class EdgeListReader {
+
+	private static final int CHUNK_BYTES = 1 << 23;
+	//How far a range reads past its end to finish its last line, a longer line is malformed
+	private static final int MAX_LINE_BYTES = 1 << 16;
+
+	private final Path file;
+	private final DuplicateEdges policy;
+	private final int chunkBytes;
+
+	//Statistics of the last read
+	private long bytes;
+	private int edgesRead;
+	private int malformedLines;
+	private long firstMalformedLine;
+	private long nanos;
+
+	//Edges listed more than once are kept once (an undirected edge may be listed both ways)
+	public EdgeListReader(Path file) {
+		this(file, DuplicateEdges.KEEP_FIRST);
+	}
+
+	public EdgeListReader(Path file, DuplicateEdges policy) {
+		this(file, policy, CHUNK_BYTES);
+	}
+
+	//Ranges of chunkBytes instead of CHUNK_BYTES, so that a small file can still span several ranges
+	EdgeListReader(Path file, DuplicateEdges policy, int chunkBytes) {
+		if (chunkBytes < 1)
+			throw new GraphException("Chunk size must be positive: " + chunkBytes);
+		this.file = file;
+		this.policy = policy;
+		this.chunkBytes = chunkBytes;
+		firstMalformedLine = -1;
+	}
+
+	/* -------
+	 * READERS
+	 * -------
+	 */
+
+	//The weights in the file are ignored
+	public DirectedGraph readDirected() throws IOException {
+		return read(new DirectedGraph());
+	}
+
+	public WeightedGraph readWeighted() throws IOException {
+		return (WeightedGraph) read(new WeightedGraph());
+	}
+
+	public UndirectedGraph readUndirected() throws IOException {
+		long begin = System.nanoTime();
+		Chunk all = parse();
+		UndirectedGraph g = new UndirectedGraph();
+		for (int u : nodesOf(all))
+			g.addNode(u);
+		g.connectAll(all.edges, policy);
+		nanos = System.nanoTime() - begin;
+		return g;
+	}
+
+	//Only the edges, in the order of the file
+	public EdgeList readEdges() throws IOException {
+		long begin = System.nanoTime();
+		EdgeList edges = parse().edges;
+		nanos = System.nanoTime() - begin;
+		return edges;
+	}
+
+	/* -------
+	 * GETTERS
+	 * -------
+	 */
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public int getEdgesRead() {
+		return edgesRead;
+	}
+
+	public int getMalformedLines() {
+		return malformedLines;
+	}
+
+	//Line number (from 1) of the first malformed line, -1 if there was none
+	public long getFirstMalformedLine() {
+		return firstMalformedLine;
+	}
+
+	public double getSeconds() {
+		return nanos / 1e9;
+	}
+
+	//Throughput of the last read, from opening the file to the finished graph
+	public double getMegabytesPerSecond() {
+		return (nanos == 0) ? 0 : (bytes / 1e6) / (nanos / 1e9);
+	}
+
+	public String toString() {
+		return String.format("%.1f MB, %d edges, %d malformed lines in %.2fs (%.1f MB/s)",
+				bytes / 1e6, edgesRead, malformedLines, getSeconds(), getMegabytesPerSecond());
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private DirectedGraph read(DirectedGraph g) throws IOException {
+		long begin = System.nanoTime();
+		Chunk all = parse();
+		for (int u : nodesOf(all))
+			g.addNode(u);
+		g.connectAll(all.edges, policy);
+		nanos = System.nanoTime() - begin;
+		return g;
+	}
+
+	//Parses every range in parallel and joins the results in file order
+	private Chunk parse() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int chunks = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+			Chunk[] parts = IntStream.range(0, chunks).parallel()
+					.mapToObj(k -> new Chunk(channel, size, (long) k * chunkBytes, chunkBytes))
+					.toArray(Chunk[]::new);
+
+			Chunk all = new Chunk();
+			long lines = 0;
+			firstMalformedLine = -1;
+			for (Chunk part : parts) {
+				if (part.failure != null)
+					throw part.failure;
+				all.edges.addAll(part.edges);
+				all.dimacsNodes = Math.max(all.dimacsNodes, part.dimacsNodes);
+				all.malformed += part.malformed;
+				if (firstMalformedLine < 0 && part.firstMalformed >= 0)
+					firstMalformedLine = lines + part.firstMalformed + 1;
+				lines += part.lines;
+			}
+			bytes = size;
+			edgesRead = all.edges.size();
+			malformedLines = all.malformed;
+			return all;
+		}
+	}
+
+	//Every id in an edge (and 1..n after a DIMACS problem line), sorted and without repeats
+	private static int[] nodesOf(Chunk all) {
+		EdgeList edges = all.edges;
+		int m = edges.size();
+		int extra = Math.max(0, all.dimacsNodes);
+		int[] ids = new int[2 * m + extra];
+		IntStream.range(0, m).parallel().forEach(i -> {
+			ids[2 * i] = edges.getFrom(i);
+			ids[2 * i + 1] = edges.getTo(i);
+		});
+		for (int u = 1; u <= extra; u++)
+			ids[2 * m + u - 1] = u;
+		Arrays.parallelSort(ids);
+		int distinct = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == 0 || ids[i] != ids[i - 1])
+				ids[distinct++] = ids[i];
+		}
+		return Arrays.copyOf(ids, distinct);
+	}
+
+	//The lines that start in one byte range of the file
+	private static class Chunk {
+		EdgeList edges = new EdgeList();
+		int lines;
+		int malformed;
+		//Line of the first malformed one, counted from 0 within the range
+		int firstMalformed = -1;
+		int dimacsNodes = -1;
+		IOException failure;
+
+		//The mapped range, copied once into the heap so that the parser reads a plain array
+		private byte[] buffer;
+		private int pos;
+		private int limit;
+		//Whether the mapping goes to the end of the file, or else a line cut at the limit is too long
+		private boolean eof;
+
+		Chunk() {
+		}
+
+		Chunk(FileChannel channel, long size, long start, int bytes) {
+			long end = Math.min(size, start + bytes);
+			if (start >= end)
+				return;
+			//One byte before the range tells whether it starts at the beginning of a line
+			long from = Math.max(0, start - 1);
+			long to = Math.min(size, end + MAX_LINE_BYTES);
+			try {
+				buffer = new byte[(int) (to - from)];
+				channel.map(FileChannel.MapMode.READ_ONLY, from, to - from).get(buffer);
+			}
+			catch (IOException e) {
+				failure = e;
+				return;
+			}
+			limit = (int) (to - from);
+			eof = (to == size);
+			int stop = (int) (end - from);
+			pos = (int) (start - from);
+			if (start > 0 && buffer[pos - 1] != '\n')
+				skipLine();
+			while (pos < stop) {
+				int line = lines++;
+				if (!parseLine()) {
+					malformed++;
+					if (firstMalformed < 0)
+						firstMalformed = line;
+					skipLine();
+				}
+			}
+		}
+
+		//Reads the line at pos and moves past its end, returns false (leaving pos inside the line) if it is malformed
+		private boolean parseLine() {
+			skipSpaces();
+			if (atLineEnd())
+				return endLine();
+			byte c = buffer[pos];
+			if (c == '#' || c == '%' || c == 'c') {
+				skipLine();
+				return true;
+			}
+			if (c == 'p') {
+				//"p sp n m"
+				pos++;
+				skipSpaces();
+				while (pos < limit && !isSpace(buffer[pos]) && buffer[pos] != '\n')
+					pos++;
+				long n = number();
+				if (n < 0 || number() == Long.MIN_VALUE)
+					return false;
+				dimacsNodes = (int) n;
+				return endLine();
+			}
+			boolean dimacs = (c == 'a');
+			if (dimacs)
+				pos++;
+			long u = number();
+			long v = number();
+			if (u == Long.MIN_VALUE || v == Long.MIN_VALUE)
+				return false;
+			int mark = pos;
+			long w = number();
+			if (w == Long.MIN_VALUE) {
+				if (dimacs)
+					return false;
+				pos = mark;
+				w = 0;
+			}
+			if (!endLine())
+				return false;
+			edges.add((int) u, (int) v, (int) w);
+			return true;
+		}
+
+		//The next number on the line as an int, Long.MIN_VALUE if there is none or it does not fit
+		private long number() {
+			skipSpaces();
+			boolean negative = false;
+			if (pos < limit && buffer[pos] == '-') {
+				negative = true;
+				pos++;
+			}
+			int begin = pos;
+			long ans = 0;
+			while (pos < limit) {
+				byte c = buffer[pos];
+				if (c < '0' || c > '9')
+					break;
+				ans = ans * 10 + (c - '0');
+				if (ans > Integer.MAX_VALUE + 1L)
+					return Long.MIN_VALUE;
+				pos++;
+			}
+			boolean separated = atLineEnd() || (pos < limit && isSpace(buffer[pos]));
+			if (pos == begin || !separated)
+				return Long.MIN_VALUE;
+			ans = negative ? -ans : ans;
+			return (ans > Integer.MAX_VALUE) ? Long.MIN_VALUE : ans;
+		}
+
+		//True (moving past the newline) if only spaces are left on the line
+		private boolean endLine() {
+			skipSpaces();
+			if (!atLineEnd())
+				return false;
+			if (pos < limit)
+				pos++;
+			return true;
+		}
+
+		private void skipLine() {
+			while (pos < limit && buffer[pos] != '\n')
+				pos++;
+			if (pos < limit)
+				pos++;
+		}
+
+		private void skipSpaces() {
+			while (pos < limit && isSpace(buffer[pos]))
+				pos++;
+		}
+
+		private boolean atLineEnd() {
+			return (pos >= limit) ? eof : buffer[pos] == '\n';
+		}
+
+		private static boolean isSpace(byte c) {
+			return c == ' ' || c == '\t' || c == '\r';
+		}
+	}
+}
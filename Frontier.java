@@ -0,0 +1,48 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+//Level-synchronous expansion of a frontier for the parallel engines: the frontier is cut into chunks
+//on the common fork-join pool, every chunk collects the nodes it adds in a list of its own,
+//and the lists are joined once all of them are done, so no lock is needed.
+class Frontier {
+
+	//Frontiers smaller than this are expanded by the calling thread alone
+	static final int GRAIN = 1024;
+
+	//Visits one node of a frontier, adding the nodes of the next frontier it claims
+	interface Step {
+		void visit(int u, IntList next);
+	}
+
+	private Frontier() {
+	}
+
+	//Runs the step on every node of the frontier and returns the nodes they added
+	static IntList expand(IntList frontier, Step step) {
+		int size = frontier.size();
+		int chunks = (size < GRAIN) ? 1 : Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, size / GRAIN + 1);
+		IntList[] parts = new IntList[chunks];
+		if (chunks == 1)
+			parts[0] = visitRange(frontier, 0, size, step);
+		else
+			IntStream.range(0, chunks).parallel().forEach(c ->
+				parts[c] = visitRange(frontier, (int) ((long) size * c / chunks), (int) ((long) size * (c + 1) / chunks), step));
+		IntList next = parts[0];
+		for (int c = 1; c < chunks; c++)
+			next.addAll(parts[c]);
+		return next;
+	}
+
+	static IntList single(int u) {
+		IntList list = new IntList();
+		list.add(u);
+		return list;
+	}
+
+	private static IntList visitRange(IntList frontier, int from, int to, Step step) {
+		IntList next = new IntList();
+		for (int i = from; i < to; i++)
+			step.visit(frontier.get(i), next);
+		return next;
+	}
+}
@@ -1,67 +1,285 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 public class GraphNode {
-	
+
+	//Above this out-degree a node also keeps a map from the data of each child to its position in the array
+	static final int PROMOTE_DEGREE = 16;
+
 	private int data;
-	private LinkedList<GraphNode> adjacency;
+	private int index;
+	private GraphNode[] adjacency;
+	private int[] weights;
+	private IntIdMap positions;
+	private boolean hasDuplicates;
 	private int outDegree;
+	//The nodes that have this node as a child, once for every edge
+	private GraphNode[] parents;
 	private int inDegree;
-	
+	//Each edge knows both of its places: parentSlots[k] is the position of this node among the parents of its k-th child
+	//(-1 if the child does not know it), and childSlots[j] the position of this node among the children of its j-th parent.
+	//Once the child is found, removing the edge takes O(1) on both nodes
+	private int[] parentSlots;
+	private int[] childSlots;
+
 	public GraphNode(int data) {
 		this.data = data;
-		adjacency = new LinkedList<GraphNode>();
+		index = -1;
+		adjacency = new GraphNode[4];
+		weights = new int[4];
+		parentSlots = new int[4];
+		parents = new GraphNode[4];
+		childSlots = new int[4];
 		outDegree = 0;
 		inDegree = 0;
 	}
-	
+
 	public GraphNode(int data, LinkedList<GraphNode> adjacency) {
-		this.data = data;
-		this.adjacency = adjacency;
-		outDegree = adjacency.size();
-		inDegree = 0;
+		this(data);
+		for (GraphNode u : adjacency)
+			append(u, 0);
 	}
-	
+
 	public GraphNode(GraphNode other) {
 		this(other.data);
-		for (GraphNode u : other.adjacency)
-			adjacency.add(u);	
+		for (int k = 0; k < other.outDegree; k++)
+			append(other.adjacency[k], other.weights[k]);
 	}
-	
+
 	public int getData() {
 		return data;
 	}
-	
+
 	public void setData(int data) {
 		this.data = data;
 	}
-	
+
+	//Dense index given by the VertexIndex of the graph holding this node (-1 when not in a graph)
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	public int getInDegree() {
 		return inDegree;
 	}
 	public int getOutDegree() {
 		return outDegree;
 	}
+
+	//The k-th child, for 0 <= k < getOutDegree(). Removing a child may change the order of the rest
+	public GraphNode getChildAt(int k) {
+		return adjacency[k];
+	}
+
+	//Weight of the edge to the k-th child (0 unless the node belongs to a weighted graph)
+	public int getWeightAt(int k) {
+		return weights[k];
+	}
 	
-	public Iterator<GraphNode> getChildrenIterator(){
-		return adjacency.iterator();
+	public int getWeightOf(GraphNode node) {
+		return weights[checkChild(node)];
 	}
 	
+	public void setWeightOf(GraphNode node, int w) {
+		weights[checkChild(node)] = w;
+	}
+	
+	//The k-th parent, for 0 <= k < getInDegree(). Removing a parent may change the order of the rest
+	public GraphNode getParentAt(int k) {
+		return parents[k];
+	}
+	
+	//Weight of the edge from the k-th parent
+	public int getParentWeightAt(int k) {
+		return parents[k].weights[childSlots[k]];
+	}
+	
+	public Iterator<GraphNode> getParentsIterator(){
+		return new Iterator<GraphNode>() {
+			private int k = 0;
+
+			@Override
+			public boolean hasNext() {
+				return k < inDegree;
+			}
+
+			@Override
+			public GraphNode next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return parents[k++];
+			}
+		};
+	}
+	
+	public Iterator<GraphNode> getChildrenIterator(){
+		return new Iterator<GraphNode>() {
+			private int k = 0;
+
+			@Override
+			public boolean hasNext() {
+				return k < outDegree;
+			}
+
+			@Override
+			public GraphNode next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return adjacency[k++];
+			}
+		};
+	}
+
 	public void addChild(GraphNode node) {
-		adjacency.add(node);
-		outDegree++;
-		node.inDegree++;
+		addChild(node, 0);
 	}
 	
-	public void removeChild(GraphNode node) {
-		if (adjacency.contains(node)){
-			adjacency.remove(node);
-			outDegree--;
-			node.inDegree--;
+	public void addChild(GraphNode node, int w) {
+		node.addParent(this, append(node, w));
+	}
+
+	//Makes room for this many more children, so that adding them does not grow the arrays over and over
+	void reserveChildren(int extra) {
+		if (outDegree + extra > adjacency.length) {
+			adjacency = Arrays.copyOf(adjacency, outDegree + extra);
+			weights = Arrays.copyOf(weights, outDegree + extra);
+			parentSlots = Arrays.copyOf(parentSlots, outDegree + extra);
 		}
 	}
 	
+	void reserveParents(int extra) {
+		if (inDegree + extra > parents.length) {
+			parents = Arrays.copyOf(parents, inDegree + extra);
+			childSlots = Arrays.copyOf(childSlots, inDegree + extra);
+		}
+	}
+	
+	//Adds the edge without registering this node as a parent of node, for BulkLoader, which adds the parents in a pass of its own.
+	//Returns the position of node among the children, for addParent
+	int appendChild(GraphNode node, int w) {
+		return append(node, w);
+	}
+	
+	//Registers parent, whose child at position childSlot is this node
+	void addParent(GraphNode parent, int childSlot) {
+		if (inDegree == parents.length) {
+			parents = Arrays.copyOf(parents, inDegree * 2);
+			childSlots = Arrays.copyOf(childSlots, inDegree * 2);
+		}
+		parents[inDegree] = parent;
+		childSlots[inDegree] = childSlot;
+		parent.parentSlots[childSlot] = inDegree++;
+	}
+	
+	public void removeChild(GraphNode node) {
+		int k = positionOf(node);
+		if (k != -1){
+			if (parentSlots[k] >= 0)
+				node.removeParentAt(parentSlots[k]);
+			removeAt(k);
+		}
+	}
+
 	public boolean isChild(GraphNode node) {
-		return adjacency.contains(node);
+		return positionOf(node) != -1;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private int checkChild(GraphNode node) {
+		int k = positionOf(node);
+		if (k == -1)
+			throw new GraphException("Node " + node.data + " is not a child of " + data);
+		return k;
+	}
+
+	private int positionOf(GraphNode node) {
+		if (positions != null) {
+			int k = positions.get(node.data);
+			return (k != IntIdMap.MISSING && adjacency[k] == node) ? k : -1;
+		}
+		for (int k = 0; k < outDegree; k++) {
+			if (adjacency[k] == node)
+				return k;
+		}
+		return -1;
+	}
+
+	//Returns the position of the new child
+	private int append(GraphNode node, int w) {
+		if (outDegree == adjacency.length) {
+			adjacency = Arrays.copyOf(adjacency, outDegree * 2);
+			weights = Arrays.copyOf(weights, outDegree * 2);
+			parentSlots = Arrays.copyOf(parentSlots, outDegree * 2);
+		}
+		adjacency[outDegree] = node;
+		weights[outDegree] = w;
+		parentSlots[outDegree] = -1;
+		if (positions != null) {
+			if (positions.containsKey(node.data))
+				hasDuplicates = true;
+			else
+				positions.put(node.data, outDegree);
+		}
+		int k = outDegree++;
+		if (positions == null && outDegree > PROMOTE_DEGREE)
+			promote();
+		return k;
+	}
+
+	//Moves the last parent into position j, and tells that parent where its edge now ends
+	private void removeParentAt(int j) {
+		int last = --inDegree;
+		if (j != last) {
+			parents[j] = parents[last];
+			childSlots[j] = childSlots[last];
+			parents[j].parentSlots[childSlots[j]] = j;
+		}
+		parents[last] = null;
+	}
+
+	//Moves the last child into position k, and tells that child where its edge now starts
+	private void removeAt(int k) {
+		GraphNode removed = adjacency[k];
+		GraphNode last = adjacency[--outDegree];
+		adjacency[k] = last;
+		weights[k] = weights[outDegree];
+		parentSlots[k] = parentSlots[outDegree];
+		if (k != outDegree && parentSlots[k] >= 0)
+			last.childSlots[parentSlots[k]] = k;
+		adjacency[outDegree] = null;
+		if (positions != null) {
+			positions.remove(removed.data);
+			if (last != removed)
+				positions.put(last.data, k);
+			//The same child may appear more than once (e.g. a self loop in an undirected graph)
+			if (hasDuplicates) {
+				for (int j = 0; j < outDegree; j++) {
+					if (adjacency[j] == removed) {
+						positions.put(removed.data, j);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private void promote() {
+		positions = new IntIdMap(outDegree * 2);
+		for (int k = 0; k < outDegree; k++) {
+			if (positions.containsKey(adjacency[k].data))
+				hasDuplicates = true;
+			else
+				positions.put(adjacency[k].data, k);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,6 @@
+//Estimate of the weight of the shortest path between two nodes (given by their data), used to guide A*.
+//It must never overestimate the real weight, or A* may return a path that is not the shortest.
+public interface Heuristic {
+	
+	int estimate(int from, int to);
+}
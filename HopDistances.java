@@ -0,0 +1,43 @@
+//Hop counts (number of edges on a shortest path) from a batch of sources to every node of a snapshot,
+//one row per source indexed by the dense indices of the snapshot. Unreachable nodes hold -1.
+public class HopDistances {
+
+	private final CsrGraph g;
+	private final int[] sources;
+	//Row of every source node (the first one when a source was given twice)
+	private final IntIdMap rows;
+	private final int[][] distances;
+
+	HopDistances(CsrGraph g, int[] sources, int[][] distances) {
+		this.g = g;
+		this.sources = sources;
+		this.distances = distances;
+		rows = new IntIdMap(sources.length);
+		for (int i = sources.length - 1; i >= 0; i--)
+			rows.put(sources[i], i);
+	}
+
+	public int getSourcesNum() {
+		return sources.length;
+	}
+
+	public int get(int source, int target) {
+		return distances[checkSource(source)][g.checkNode(target)];
+	}
+
+	//A copy of the hop counts from one source, indexed like the snapshot (see CsrGraph.idAt)
+	public int[] getRow(int source) {
+		return distances[checkSource(source)].clone();
+	}
+
+	public CsrGraph getGraph() {
+		return g;
+	}
+
+	private int checkSource(int source) {
+		int row = rows.get(source);
+		if (row == IntIdMap.MISSING)
+			throw new GraphException("Node " + source + " is not a source of this batch");
+		return row;
+	}
+}
@@ -0,0 +1,13 @@
+//The weighted out-edges of each dense index of a graph (none for an index that holds no node),
+//for the algorithms that WeightedGraph, CsrGraph and MappedGraph share (see Spfa and AStar)
+interface IndexedEdges {
+
+	int degree(int u);
+
+	int target(int u, int k);
+
+	int weight(int u, int k);
+
+	//The data of the node at index u
+	int idAt(int u);
+}
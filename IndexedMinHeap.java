@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+//A 4-ary min-heap of dense indices 0..capacity-1 keyed by int priorities.
+//Every index remembers its position in the heap, so decreaseKey is O(log n) instead of a linear remove.
+public class IndexedMinHeap {
+
+	private static final int D = 4;
+
+	private int[] heap;
+	private int[] position;
+	private int[] keys;
+	private int size;
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new int[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	/* --------
+	 * QUERIES
+	 * --------
+	 */
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int i) {
+		return position[i] != -1;
+	}
+
+	public int keyOf(int i) {
+		return keys[i];
+	}
+
+	public int peek() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return heap[0];
+	}
+
+	public int peekKey() {
+		return keys[peek()];
+	}
+
+	/* ---------
+	 * EDIT HEAP
+	 * ---------
+	 */
+
+	public void insert(int i, int key) {
+		if (contains(i))
+			throw new IllegalArgumentException("Index " + i + " is already in the heap");
+		keys[i] = key;
+		heap[size] = i;
+		position[i] = size;
+		siftUp(size++);
+	}
+
+	public void decreaseKey(int i, int key) {
+		if (key > keys[i])
+			throw new IllegalArgumentException("Key of " + i + " can't increase from " + keys[i] + " to " + key);
+		keys[i] = key;
+		siftUp(position[i]);
+	}
+
+	//Inserts i, or lowers its key if it is already in the heap
+	public void insertOrDecrease(int i, int key) {
+		if (contains(i))
+			decreaseKey(i, key);
+		else
+			insert(i, key);
+	}
+
+	//Removes and returns the index with the smallest key
+	public int poll() {
+		int top = peek();
+		position[top] = -1;
+		if (--size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	//Empties the heap in O(size), so it can be reused by another search
+	public void clear() {
+		for (int p = 0; p < size; p++)
+			position[heap[p]] = -1;
+		size = 0;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private void siftUp(int p) {
+		int i = heap[p];
+		int key = keys[i];
+		while (p > 0) {
+			int parent = (p - 1) / D;
+			int above = heap[parent];
+			if (keys[above] <= key)
+				break;
+			heap[p] = above;
+			position[above] = p;
+			p = parent;
+		}
+		heap[p] = i;
+		position[i] = p;
+	}
+
+	private void siftDown(int p) {
+		int i = heap[p];
+		int key = keys[i];
+		while (true) {
+			int first = p * D + 1;
+			if (first >= size)
+				break;
+			int last = Math.min(first + D, size);
+			int best = first;
+			for (int c = first + 1; c < last; c++) {
+				if (keys[heap[c]] < keys[heap[best]])
+					best = c;
+			}
+			if (keys[heap[best]] >= key)
+				break;
+			heap[p] = heap[best];
+			position[heap[p]] = p;
+			p = best;
+		}
+		heap[p] = i;
+		position[i] = p;
+	}
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+//Open-addressing map from int keys to non-negative int values, so lookups never box.
+//Linear probing is used, and a removal shifts the following entries back instead of leaving tombstones.
+public class IntIdMap {
+
+	public static final int MISSING = -1;
+
+	private int[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	/* ------------
+	 * CONSTRUCTORS
+	 * ------------
+	 */
+
+	public IntIdMap() {
+		this(8);
+	}
+
+	public IntIdMap(int expected) {
+		int capacity = 16;
+		while (capacity < expected * 2)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/* --------
+	 * QUERIES
+	 * --------
+	 */
+
+	//The value of key, or MISSING
+	public int get(int key) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return MISSING;
+	}
+
+	public boolean containsKey(int key) {
+		return get(key) != MISSING;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/* --------
+	 * EDIT MAP
+	 * --------
+	 */
+
+	//Returns the previous value of key, or MISSING
+	public int put(int key, int value) {
+		if (value < 0)
+			throw new IllegalArgumentException("Value must be non-negative: " + value);
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length)
+			rehash(keys.length << 1);
+		return MISSING;
+	}
+
+	//Returns the removed value of key, or MISSING
+	public int remove(int key) {
+		int i = slot(key);
+		while (used[i] && keys[i] != key)
+			i = (i + 1) & mask;
+		if (!used[i])
+			return MISSING;
+		int old = values[i];
+		used[i] = false;
+		size--;
+
+		//Shift back every following entry of the run that can no longer be reached from its home slot
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (!used[j])
+				break;
+			int home = slot(keys[j]);
+			boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+			if (!reachable) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				used[i] = true;
+				used[j] = false;
+				i = j;
+			}
+		}
+		return old;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i])
+				put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
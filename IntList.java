@@ -0,0 +1,49 @@
+import java.util.Arrays;
+
+//A growable array of ints, for the work lists of the engines that run over snapshots
+public class IntList {
+
+	private int[] items;
+	private int size;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		items = new int[Math.max(1, capacity)];
+	}
+
+	public void add(int x) {
+		if (size == items.length)
+			items = Arrays.copyOf(items, size * 2);
+		items[size++] = x;
+	}
+
+	public void addAll(IntList other) {
+		if (size + other.size > items.length)
+			items = Arrays.copyOf(items, Math.max(size + other.size, items.length * 2));
+		System.arraycopy(other.items, 0, items, size, other.size);
+		size += other.size;
+	}
+
+	public int get(int i) {
+		return items[i];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(items, size);
+	}
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Johnson's all-pairs shortest paths over a snapshot, with the Dijkstra's phase split across a fork-join pool.
+//Bellman-Ford from a virtual source (an edge of weight 0 to every node) gives each node a potential h,
+//and the weights w(u,v) + h(u) - h(v) are non-negative while keeping the same shortest paths.
+public class Johnsons {
+
+	//Receives the distances from one source, indexed like the snapshot. Called from several threads at once,
+	//and the array is reused once the call returns
+	public interface RowVisitor {
+		void visit(int source, int[] distances);
+	}
+
+	private final CsrGraph g;
+	private final CsrGraph reweighted;
+	private final int[] potential;
+
+	public Johnsons(CsrGraph g) {
+		this.g = g;
+		potential = potentials(g);
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		int[] weights = g.getWeights();
+		int[] shifted = new int[targets.length];
+		for (int u = 0; u < g.getNodesNum(); u++) {
+			for (int e = offsets[u]; e < offsets[u + 1]; e++)
+				shifted[e] = (weights == null ? 0 : weights[e]) + potential[u] - potential[targets[e]];
+		}
+		reweighted = new CsrGraph(g, shifted);
+		//Make sure that now all the weights are positive
+		if (!reweighted.positiveWeights())
+			throw new GraphException("Johnson failed. fire dev");
+	}
+
+	//All the distances in one n*n matrix
+	public DistanceMatrix matrix() {
+		int n = g.getNodesNum();
+		if ((long) n * n > Integer.MAX_VALUE - 8)
+			throw new GraphException("Too many nodes for a distance matrix (" + n + "), visit the rows instead");
+		int[] all = new int[n * n];
+		visitRows((source, distances) -> System.arraycopy(distances, 0, all, source * n, n));
+		return new DistanceMatrix(g, all);
+	}
+
+	//Streams the row of every source to the visitor, without keeping them
+	public void visitRows(RowVisitor visitor) {
+		int n = g.getNodesNum();
+		if (n == 0)
+			return;
+		int grain = Math.max(1, n / (ForkJoinPool.getCommonPoolParallelism() * 8));
+		ForkJoinPool.commonPool().invoke(new Sources(0, n, grain, visitor));
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//A range of sources: split in halves down to the grain, then one Dijkstra's per source with scratch arrays of its own
+	private class Sources extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final RowVisitor visitor;
+
+		Sources(int from, int to, int grain, RowVisitor visitor) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Sources(from, mid, grain, visitor), new Sources(mid, to, grain, visitor));
+				return;
+			}
+			int n = g.getNodesNum();
+			int[] distances = new int[n];
+			IndexedMinHeap heap = new IndexedMinHeap(n);
+			for (int s = from; s < to; s++) {
+				reweighted.distancesFrom(s, false, distances, heap);
+				//Undo the reweighting: d(s,v) = d'(s,v) - h(s) + h(v)
+				for (int v = 0; v < n; v++) {
+					if (distances[v] < WeightedGraph.INFINITY)
+						distances[v] = distances[v] - potential[s] + potential[v];
+				}
+				visitor.visit(s, distances);
+			}
+		}
+	}
+
+	//Bellman-Ford (SPFA) from a virtual source connected to every node with weight 0
+	private static int[] potentials(CsrGraph g) {
+		int[] h = new int[g.getNodesNum()];
+		if (g.positiveWeights())
+			return h;
+		int[] parents = new int[h.length];
+		if (g.spfa(h, parents))
+			throw new GraphException("Graph has negative cycle, can't answer query");
+		return h;
+	}
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+//ALT (A*, landmarks, triangle inequality) lower bounds for A*.
+//Distances to and from a few landmark nodes are computed once, and by the triangle inequality
+//d(u,t) >= d(L,t) - d(L,u) and d(u,t) >= d(u,L) - d(t,L) for every landmark L.
+//The bounds are tied to the snapshot they were built from: after edits to the graph, build them again.
+public class Landmarks implements Heuristic {
+
+	private final CsrGraph g;
+	private final int[] landmarks;
+	//fromLandmark[l * n + u] = d(landmark l, u) and toLandmark[l * n + u] = d(u, landmark l)
+	private final int[] fromLandmark;
+	private final int[] toLandmark;
+
+	//Picks k landmarks greedily, each one as far as possible from the ones picked before it
+	public Landmarks(CsrGraph g, int k) {
+		if (!g.positiveWeights())
+			throw new GraphException("Landmarks need non-negative weights");
+		this.g = g;
+		int n = g.getNodesNum();
+		k = Math.min(k, n);
+		landmarks = new int[k];
+		fromLandmark = new int[k * n];
+		toLandmark = new int[k * n];
+
+		//Distance of every node to its closest landmark so far
+		int[] closest = new int[n];
+		Arrays.fill(closest, Integer.MAX_VALUE);
+		for (int l = 0; l < k; l++) {
+			int next = 0;
+			if (l == 0) {
+				//Start from the node farthest from an arbitrary node
+				int[] d = g.distancesFrom(0, false);
+				for (int u = 0; u < n; u++) {
+					if (d[u] < WeightedGraph.INFINITY && d[u] > d[next])
+						next = u;
+				}
+			}
+			else {
+				for (int u = 0; u < n; u++) {
+					if (closest[u] > closest[next])
+						next = u;
+				}
+			}
+			landmarks[l] = next;
+			System.arraycopy(g.distancesFrom(next, false), 0, fromLandmark, l * n, n);
+			System.arraycopy(g.distancesFrom(next, true), 0, toLandmark, l * n, n);
+			for (int u = 0; u < n; u++)
+				closest[u] = Math.min(closest[u], Math.min(fromLandmark[l * n + u], toLandmark[l * n + u]));
+		}
+	}
+
+	//The data of the landmark nodes
+	public int[] getLandmarks() {
+		int[] ans = new int[landmarks.length];
+		for (int l = 0; l < landmarks.length; l++)
+			ans[l] = g.idAt(landmarks[l]);
+		return ans;
+	}
+
+	@Override
+	public int estimate(int from, int to) {
+		int u = g.indexOf(from);
+		int t = g.indexOf(to);
+		if (u < 0 || t < 0)
+			return 0;
+		int n = g.getNodesNum();
+		int best = 0;
+		for (int l = 0; l < landmarks.length; l++) {
+			int lu = fromLandmark[l * n + u];
+			int lt = fromLandmark[l * n + t];
+			//Unreachable distances give no bound
+			if (lu < WeightedGraph.INFINITY && lt < WeightedGraph.INFINITY)
+				best = Math.max(best, lt - lu);
+			int ul = toLandmark[l * n + u];
+			int tl = toLandmark[l * n + t];
+			if (ul < WeightedGraph.INFINITY && tl < WeightedGraph.INFINITY)
+				best = Math.max(best, ul - tl);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//A snapshot stored in a binary file and read through memory-mapped buffers, so opening it costs no parsing and no copy,
+//and every JVM on the host that opens the same file shares its pages through the page cache.
+//The file is a 32-byte header (magic, version, flags, nodes, edges) followed by four little-endian int sections:
+//the data of every node in ascending order (its dense index is its rank), n + 1 offsets, the targets of every node
+//sorted by index, and the weights alongside (only in a weighted file). Each section must fit in 2GB.
+public class MappedGraph {
+
+	private static final int MAGIC = 0x47525048; //"GRPH"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int WEIGHTED = 1;
+	private static final int NEGATIVE_WEIGHTS = 2;
+
+	private final int n;
+	private final int m;
+	private final boolean weighted;
+	private final boolean negativeWeights;
+	private final IntBuffer ids;
+	private final IntBuffer offsets;
+	private final IntBuffer targets;
+	private final IntBuffer weights;
+
+	private MappedGraph(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_BYTES)
+			throw new GraphException("Not a graph file");
+		IntBuffer header = map(channel, 0, HEADER_BYTES);
+		if (header.get(0) != MAGIC)
+			throw new GraphException("Not a graph file");
+		if (header.get(1) != VERSION)
+			throw new GraphException("Unsupported graph file version " + header.get(1));
+		weighted = (header.get(2) & WEIGHTED) != 0;
+		negativeWeights = (header.get(2) & NEGATIVE_WEIGHTS) != 0;
+		n = header.get(3);
+		m = header.get(4);
+		long position = HEADER_BYTES;
+		if (channel.size() != position + 4L * (2L * n + 1 + m + (weighted ? m : 0)))
+			throw new GraphException("Graph file is truncated");
+		ids = map(channel, position, 4L * n);
+		position += 4L * n;
+		offsets = map(channel, position, 4L * (n + 1));
+		position += 4L * (n + 1);
+		targets = map(channel, position, 4L * m);
+		position += 4L * m;
+		weights = weighted ? map(channel, position, 4L * m) : null;
+	}
+
+	/* -------------
+	 * READ / WRITE
+	 * -------------
+	 */
+
+	//Maps a file written by write. The buffers stay valid after the channel is closed
+	public static MappedGraph open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new MappedGraph(channel);
+		}
+	}
+
+	//Writes a snapshot, e.g. write(g.freeze(), file) for a directed or weighted graph
+	public static void write(CsrGraph g, Path file) throws IOException {
+		int n = g.getNodesNum();
+		int[] offsets = g.getOffsets();
+		int m = offsets[n];
+		if (4L * m > Integer.MAX_VALUE)
+			throw new GraphException("Too many edges for one file: " + m);
+		boolean weighted = g.isWeighted();
+
+		//The children of every node sorted by index (with their weights), so that edge lookups can binary search
+		int[] targets = g.getTargets().clone();
+		int[] weights = weighted ? g.getWeights().clone() : null;
+		for (int u = 0; u < n; u++) {
+			int lo = offsets[u];
+			int hi = offsets[u + 1];
+			long[] row = new long[hi - lo];
+			for (int e = lo; e < hi; e++)
+				row[e - lo] = ((long) targets[e] << 32) | (weighted ? weights[e] & 0xFFFFFFFFL : 0);
+			Arrays.sort(row);
+			for (int e = lo; e < hi; e++) {
+				targets[e] = (int) (row[e - lo] >>> 32);
+				if (weighted)
+					weights[e] = (int) row[e - lo];
+			}
+		}
+
+		int[] ids = new int[n];
+		for (int u = 0; u < n; u++)
+			ids[u] = g.idAt(u);
+		int flags = (weighted ? WEIGHTED : 0) | (weighted && !g.positiveWeights() ? NEGATIVE_WEIGHTS : 0);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long position = 0;
+			position = put(channel, position, new int[] {MAGIC, VERSION, flags, n, m, 0, 0, 0});
+			position = put(channel, position, ids);
+			position = put(channel, position, offsets);
+			position = put(channel, position, targets);
+			if (weighted)
+				put(channel, position, weights);
+		}
+	}
+
+	/* -------
+	 * GETTERS
+	 * -------
+	 */
+
+	public int getNodesNum() {
+		return n;
+	}
+
+	public int getEdgesNum() {
+		return m;
+	}
+
+	public boolean isWeighted() {
+		return weighted;
+	}
+
+	public boolean positiveWeights() {
+		return !negativeWeights;
+	}
+
+	public boolean isNode(int u) {
+		return indexOf(u) >= 0;
+	}
+
+	//Dense index of node u (a binary search of the id section), or IntIdMap.MISSING
+	public int indexOf(int u) {
+		int lo = 0;
+		int hi = n - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int id = ids.get(mid);
+			if (id < u)
+				lo = mid + 1;
+			else if (id > u)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return IntIdMap.MISSING;
+	}
+
+	public int idAt(int i) {
+		return ids.get(i);
+	}
+
+	public int getOutDegree(int u) {
+		int i = checkNode(u);
+		return offsets.get(i + 1) - offsets.get(i);
+	}
+
+	//The data of the children of u
+	public int[] getChildren(int u) {
+		int i = checkNode(u);
+		int[] ans = new int[offsets.get(i + 1) - offsets.get(i)];
+		for (int e = offsets.get(i); e < offsets.get(i + 1); e++)
+			ans[e - offsets.get(i)] = ids.get(targets.get(e));
+		return ans;
+	}
+
+	public boolean isEdgeFromTo(int from, int to) {
+		return edgeFromTo(checkNode(from), checkNode(to)) >= 0;
+	}
+
+	public int weightEdgeFromTo(int from, int to) {
+		int e = edgeFromTo(checkNode(from), checkNode(to));
+		if (e < 0)
+			throw new GraphException("No edge from " + from + " to " + to);
+		return weighted ? weights.get(e) : 0;
+	}
+
+	/* ----------------
+	 * GRAPH ALGORITHMS
+	 * ----------------
+	 */
+
+	//Number of edges on a shortest path, -1 if there is none
+	public int ShortestDistanceFromTo(int from, int to) {
+		int s = checkNode(from);
+		int t = checkNode(to);
+		int[] layer = new int[n];
+		Arrays.fill(layer, -1);
+		int[] queue = new int[n];
+		int tail = 0;
+		queue[tail++] = s;
+		layer[s] = 0;
+		for (int head = 0; head < tail; head++) {
+			int u = queue[head];
+			if (u == t)
+				return layer[u];
+			for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+				int v = targets.get(e);
+				if (layer[v] < 0) {
+					layer[v] = layer[u] + 1;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return -1;
+	}
+
+	//Straight off the buffers, INFINITY if there is no path: Dijkstra's, or Bellman-Ford with negative weights
+	//(MINUS_INFINITY if a negative cycle reaches to)
+	public int WeightOfShortestPathFromTo(int from, int to) {
+		int s = checkNode(from);
+		int t = checkNode(to);
+		if (negativeWeights)
+			return bellmanFord(s)[t];
+		int[] distances = new int[n];
+		Arrays.fill(distances, WeightedGraph.INFINITY);
+		distances[s] = 0;
+		IndexedMinHeap S = new IndexedMinHeap(n);
+		S.insert(s, 0);
+		while (!S.isEmpty()) {
+			int selected = S.poll();
+			if (selected == t)
+				break;
+			for (int e = offsets.get(selected); e < offsets.get(selected + 1); e++) {
+				int child = targets.get(e);
+				int discoveredDistance = distances[selected] + (weighted ? weights.get(e) : 0);
+				if (discoveredDistance < distances[child]) {
+					distances[child] = discoveredDistance;
+					S.insertOrDecrease(child, discoveredDistance);
+				}
+			}
+		}
+		return distances[t];
+	}
+
+	//Bellman-Ford (SPFA, see Spfa) from index s over the buffers. Nodes on or reachable from a negative cycle
+	//get the distance MINUS_INFINITY
+	private int[] bellmanFord(int s) {
+		int[] distances = new int[n];
+		Arrays.fill(distances, WeightedGraph.INFINITY);
+		distances[s] = 0;
+		Spfa.run(new IndexedEdges() {
+			@Override
+			public int degree(int u) {
+				return offsets.get(u + 1) - offsets.get(u);
+			}
+
+			@Override
+			public int target(int u, int k) {
+				return targets.get(offsets.get(u) + k);
+			}
+
+			@Override
+			public int weight(int u, int k) {
+				return weights.get(offsets.get(u) + k);
+			}
+
+			@Override
+			public int idAt(int u) {
+				return ids.get(u);
+			}
+		}, n, distances, new int[n]);
+		return distances;
+	}
+
+	/* -----------
+	 * CONVERSIONS
+	 * -----------
+	 */
+
+	//A heap copy, for the algorithms that only run over a CsrGraph
+	public CsrGraph toCsrGraph() {
+		return toGraph().freeze();
+	}
+
+	//A graph that can be edited, a WeightedGraph if the file is weighted. Built with one bulk load of the edges
+	public DirectedGraph toGraph() {
+		DirectedGraph g = weighted ? new WeightedGraph() : new DirectedGraph();
+		for (int u = 0; u < n; u++)
+			g.addNode(ids.get(u));
+		EdgeList edges = new EdgeList(m);
+		for (int u = 0; u < n; u++) {
+			for (int e = offsets.get(u); e < offsets.get(u + 1); e++)
+				edges.add(ids.get(u), ids.get(targets.get(e)), weighted ? weights.get(e) : 0);
+		}
+		g.connectAll(edges, DuplicateEdges.THROW);
+		return g;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Position of the edge from index u to index v in the target section, or -1
+	private int edgeFromTo(int u, int v) {
+		int lo = offsets.get(u);
+		int hi = offsets.get(u + 1) - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int target = targets.get(mid);
+			if (target < v)
+				lo = mid + 1;
+			else if (target > v)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	private int checkNode(int u) {
+		int i = indexOf(u);
+		if (i < 0)
+			throw new GraphException("Can't find node " + u);
+		return i;
+	}
+
+	private static IntBuffer map(FileChannel channel, long position, long bytes) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+		return buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	//Writes the ints at position through a writable mapping, returns the position after them
+	private static long put(FileChannel channel, long position, int[] values) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, 4L * values.length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(values);
+		buffer.force();
+		return position + 4L * values.length;
+	}
+}
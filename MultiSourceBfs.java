@@ -0,0 +1,85 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+//Multi-source BFS (Then et al.) over a snapshot: up to 64 sources are searched together, one bit of a long per source,
+//so every edge scan moves all the searches of the batch that reach it at once. A batch keeps, for every node,
+//the sources that have seen it and the sources whose frontier holds it in the current and the next layer.
+//Batches of 64 sources are independent, and run in parallel on the common fork-join pool.
+public class MultiSourceBfs {
+
+	private final CsrGraph g;
+	private final int[] offsets;
+	private final int[] targets;
+
+	public MultiSourceBfs(CsrGraph g) {
+		this.g = g;
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+	}
+
+	//Hop counts from every source (given by node data) to every node of the snapshot
+	public HopDistances distancesFrom(int[] sources) {
+		int[] indices = new int[sources.length];
+		for (int i = 0; i < sources.length; i++)
+			indices[i] = g.checkNode(sources[i]);
+		int[][] distances = new int[sources.length][];
+		int batches = (sources.length + 63) >>> 6;
+		IntStream.range(0, batches).parallel().forEach(b ->
+			runBatch(indices, b << 6, Math.min(sources.length, (b + 1) << 6), distances));
+		return new HopDistances(g, sources.clone(), distances);
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Searches from indices[from] .. indices[to-1] together, and fills their rows of distances
+	private void runBatch(int[] indices, int from, int to, int[][] distances) {
+		int n = g.getNodesNum();
+		long[] seen = new long[n];
+		long[] visit = new long[n];
+		long[] visitNext = new long[n];
+		for (int i = from; i < to; i++) {
+			int[] row = new int[n];
+			Arrays.fill(row, -1);
+			row[indices[i]] = 0;
+			distances[i] = row;
+			long bit = 1L << (i - from);
+			seen[indices[i]] |= bit;
+			visit[indices[i]] |= bit;
+		}
+
+		boolean active = true;
+		for (int level = 1; active; level++) {
+			//Every search in visit[u] passes on to the neighbours of u it has not seen yet
+			for (int u = 0; u < n; u++) {
+				long searches = visit[u];
+				if (searches == 0)
+					continue;
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int v = targets[e];
+					long reaching = searches & ~seen[v];
+					if (reaching != 0)
+						visitNext[v] |= reaching;
+				}
+			}
+			active = false;
+			for (int v = 0; v < n; v++) {
+				long reaching = visitNext[v];
+				if (reaching == 0)
+					continue;
+				active = true;
+				seen[v] |= reaching;
+				while (reaching != 0) {
+					distances[from + Long.numberOfTrailingZeros(reaching)][v] = level;
+					reaching &= reaching - 1;
+				}
+			}
+			long[] temp = visit;
+			visit = visitNext;
+			visitNext = temp;
+			Arrays.fill(visitNext, 0);
+		}
+	}
+}
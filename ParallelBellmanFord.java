@@ -0,0 +1,164 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+//Bellman-Ford over a snapshot with the edges split across the common fork-join pool.
+//The nodes are cut into ranges holding about the same number of edges, and in every round each worker relaxes
+//the edges of its range, lowering the shared distances with compare-and-set (distance and predecessor packed in a long).
+//Rounds stop when one changes nothing, and a change in round |V| means a negative cycle: as in WeightedGraph.bellmanFord,
+//every node on or reachable from one gets MINUS_INFINITY.
+public class ParallelBellmanFord {
+
+	private final CsrGraph g;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	//Range c holds the nodes bounds[c] .. bounds[c+1]-1
+	private final int[] bounds;
+
+	public ParallelBellmanFord(CsrGraph g) {
+		this.g = g;
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+		weights = g.getWeights();
+
+		int n = g.getNodesNum();
+		int chunks = Math.max(1, Math.min(n, ForkJoinPool.getCommonPoolParallelism() * 4));
+		bounds = new int[chunks + 1];
+		long m = targets.length;
+		for (int c = 1; c < chunks; c++) {
+			//First node whose edges start at or after the c-th share of the edges
+			int at = Arrays.binarySearch(offsets, 0, n + 1, (int) (m * c / chunks));
+			if (at < 0)
+				at = -at - 1;
+			while (at > 0 && offsets[at - 1] == offsets[at])
+				at--;
+			bounds[c] = Math.max(bounds[c - 1], Math.min(at, n));
+		}
+		bounds[chunks] = n;
+	}
+
+	//Distances from source and the predecessors in pred, like WeightedGraph.bellmanFord
+	public HashMap<Integer, Integer> shortestPathsFrom(int source, HashMap<Integer, Integer> pred) {
+		int n = g.getNodesNum();
+		int[] distances = new int[n];
+		int[] parents = new int[n];
+		run(g.checkNode(source), distances, parents);
+		HashMap<Integer, Integer> ans = new HashMap<>();
+		for (int u = 0; u < n; u++) {
+			ans.put(g.idAt(u), distances[u]);
+			pred.put(g.idAt(u), parents[u] < 0 ? null : g.idAt(parents[u]));
+		}
+		return ans;
+	}
+
+	public int distanceFromTo(int from, int to) {
+		int n = g.getNodesNum();
+		int[] distances = new int[n];
+		run(g.checkNode(from), distances, new int[n]);
+		return distances[g.checkNode(to)];
+	}
+
+	//Fills distances and parents (-1 for none) of every dense index, from dense index s. Returns true on a negative cycle
+	boolean run(int s, int[] distances, int[] parents) {
+		int n = g.getNodesNum();
+		AtomicLongArray state = new AtomicLongArray(n);
+		for (int u = 0; u < n; u++)
+			state.set(u, pack(WeightedGraph.INFINITY, -1));
+		state.set(s, pack(0, -1));
+
+		boolean changed = true;
+		for (int round = 0; round < n - 1 && changed; round++)
+			changed = relaxAll(state);
+		for (int u = 0; u < n; u++) {
+			distances[u] = distanceOf(state.get(u));
+			parents[u] = parentOf(state.get(u));
+		}
+		if (!changed)
+			return false;
+
+		//Round |V|: the heads of edges that still improve are on or behind a negative cycle
+		boolean negativeCycle = false;
+		int[] stack = new int[n];
+		int top = 0;
+		for (int u = 0; u < n; u++) {
+			if (distances[u] >= WeightedGraph.INFINITY || distances[u] == WeightedGraph.MINUS_INFINITY)
+				continue;
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int v = targets[e];
+				if (distances[v] != WeightedGraph.MINUS_INFINITY && distances[u] + weightAt(e) < distances[v]) {
+					distances[v] = WeightedGraph.MINUS_INFINITY;
+					stack[top++] = v;
+					negativeCycle = true;
+				}
+			}
+		}
+		while (top > 0) {
+			int current = stack[--top];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				if (distances[targets[e]] != WeightedGraph.MINUS_INFINITY) {
+					distances[targets[e]] = WeightedGraph.MINUS_INFINITY;
+					stack[top++] = targets[e];
+				}
+			}
+		}
+		return negativeCycle;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//One round over every edge, returns true if any distance changed
+	private boolean relaxAll(AtomicLongArray state) {
+		int chunks = bounds.length - 1;
+		if (chunks == 1)
+			return relaxRange(bounds[0], bounds[1], state);
+		return IntStream.range(0, chunks).parallel()
+				.map(c -> relaxRange(bounds[c], bounds[c + 1], state) ? 1 : 0)
+				.sum() > 0;
+	}
+
+	private boolean relaxRange(int from, int to, AtomicLongArray state) {
+		boolean changed = false;
+		for (int u = from; u < to; u++) {
+			int du = distanceOf(state.get(u));
+			if (du >= WeightedGraph.INFINITY)
+				continue;
+			for (int e = offsets[u]; e < offsets[u + 1]; e++)
+				changed |= lower(state, targets[e], du + weightAt(e), u);
+		}
+		return changed;
+	}
+
+	private int weightAt(int e) {
+		return (weights == null) ? 0 : weights[e];
+	}
+
+	//Atomic minimum on the distance of v, with the predecessor set in the same step
+	private static boolean lower(AtomicLongArray state, int v, int distance, int parent) {
+		long update = pack(distance, parent);
+		while (true) {
+			long current = state.get(v);
+			if (distanceOf(current) <= distance)
+				return false;
+			if (state.compareAndSet(v, current, update))
+				return true;
+		}
+	}
+
+	private static long pack(int distance, int parent) {
+		return ((long) distance << 32) | (parent & 0xffffffffL);
+	}
+
+	private static int distanceOf(long packed) {
+		return (int) (packed >> 32);
+	}
+
+	private static int parentOf(long packed) {
+		return (int) packed;
+	}
+}
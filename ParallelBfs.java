@@ -0,0 +1,49 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Level-synchronous BFS over the nodes of a directed or undirected graph, with every layer split across
+//the common fork-join pool (see Frontier). A node is claimed by setting its bit in an atomic bitset with
+//compare-and-set, so only the thread that claims it writes its parent and layer and puts it in the next frontier.
+class ParallelBfs {
+
+	private final VertexIndex nodes;
+
+	ParallelBfs(VertexIndex nodes) {
+		this.nodes = nodes;
+	}
+
+	//source and target are dense indices (target -1 to reach everything, otherwise the search stops at its layer),
+	//parent and layer are indexed by dense indices and keep -1 for the nodes that were not reached
+	void run(int source, int target, int[] parent, int[] layer) {
+		AtomicLongArray visited = new AtomicLongArray((nodes.capacity() + 63) >>> 6);
+		claim(visited, source);
+		layer[source] = 0;
+		IntList frontier = Frontier.single(source);
+		for (int level = 1; !frontier.isEmpty() && (target < 0 || layer[target] < 0); level++) {
+			int depth = level;
+			frontier = Frontier.expand(frontier, (u, next) -> {
+				GraphNode node = nodes.nodeAt(u);
+				for (int k = 0; k < node.getOutDegree(); k++) {
+					int child = node.getChildAt(k).getIndex();
+					if (claim(visited, child)) {
+						parent[child] = u;
+						layer[child] = depth;
+						next.add(child);
+					}
+				}
+			});
+		}
+	}
+
+	//Sets the bit of u, returns false if it was already set
+	private static boolean claim(AtomicLongArray bits, int u) {
+		int w = u >>> 6;
+		long mask = 1L << u;
+		while (true) {
+			long current = bits.get(w);
+			if ((current & mask) != 0)
+				return false;
+			if (bits.compareAndSet(w, current, current | mask))
+				return true;
+		}
+	}
+}
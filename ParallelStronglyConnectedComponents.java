@@ -0,0 +1,202 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+//Strongly connected components of a snapshot on all cores, for graphs too large for one depth-first pass.
+//1. Trim: nodes with no incoming or no outgoing edge among the remaining nodes are components of their own.
+//2. Forward-backward: the nodes both reachable from and reaching a pivot of high degree form its (usually giant) component.
+//3. Coloring: every remaining node takes the largest index that reaches it. A node that keeps its own index
+//   is a root, and the nodes of its color that reach it form its component. Repeat on what is left.
+//Every step is a level-synchronous pass over a frontier, split across the common fork-join pool (see Frontier).
+//The result is the same as StronglyConnectedComponents, with the ids in topological order.
+public class ParallelStronglyConnectedComponents {
+
+	private final CsrGraph g;
+	private final int n;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] revOffsets;
+	private final int[] revTargets;
+	//The dense index labeling each node's component, -1 while unknown
+	private final AtomicIntegerArray label;
+
+	public ParallelStronglyConnectedComponents(CsrGraph g) {
+		this.g = g;
+		n = g.getNodesNum();
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+		revOffsets = g.getReverseOffsets();
+		revTargets = g.getReverseTargets();
+		label = new AtomicIntegerArray(n);
+	}
+
+	public StronglyConnectedComponents components() {
+		for (int u = 0; u < n; u++)
+			label.set(u, -1);
+		trim();
+		forwardBackward();
+		trim();
+		coloring();
+		int[] labels = new int[n];
+		for (int u = 0; u < n; u++)
+			labels[u] = label.get(u);
+		return StronglyConnectedComponents.fromLabels(g, labels);
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	private boolean open(int u) {
+		return label.get(u) < 0;
+	}
+
+	//Labels a node as its own component, returns false if it was already labeled
+	private boolean claim(int u, int l) {
+		return label.compareAndSet(u, -1, l);
+	}
+
+	//Peels off the open nodes without open predecessors or without open successors, until there are none
+	private void trim() {
+		AtomicIntegerArray in = new AtomicIntegerArray(n);
+		AtomicIntegerArray out = new AtomicIntegerArray(n);
+		IntList frontier = Frontier.expand(openNodes(), (u, next) -> {
+			int inDegree = 0;
+			int outDegree = 0;
+			for (int e = revOffsets[u]; e < revOffsets[u + 1]; e++) {
+				if (open(revTargets[e]))
+					inDegree++;
+			}
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				if (open(targets[e]))
+					outDegree++;
+			}
+			in.set(u, inDegree);
+			out.set(u, outDegree);
+			if (inDegree == 0 || outDegree == 0)
+				next.add(u);
+		});
+		//Claimed only after every degree is counted, so the counts agree on which nodes are open
+		frontier = Frontier.expand(frontier, (u, next) -> {
+			if (claim(u, u))
+				next.add(u);
+		});
+		while (!frontier.isEmpty()) {
+			frontier = Frontier.expand(frontier, (u, next) -> {
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int v = targets[e];
+					if (open(v) && in.decrementAndGet(v) == 0 && claim(v, v))
+						next.add(v);
+				}
+				for (int e = revOffsets[u]; e < revOffsets[u + 1]; e++) {
+					int v = revTargets[e];
+					if (open(v) && out.decrementAndGet(v) == 0 && claim(v, v))
+						next.add(v);
+				}
+			});
+		}
+	}
+
+	//Labels the component of the open node with the most in*out edges, by intersecting its forward and backward reach
+	private void forwardBackward() {
+		int pivot = IntStream.range(0, n).parallel().filter(this::open)
+				.reduce(-1, (a, b) -> (a < 0 || (b >= 0 && weight(b) > weight(a))) ? b : a);
+		if (pivot < 0)
+			return;
+		//1 = reached forward, 2 = reached backward
+		AtomicIntegerArray reached = new AtomicIntegerArray(n);
+		reached.set(pivot, 3);
+		IntList frontier = Frontier.single(pivot);
+		while (!frontier.isEmpty()) {
+			frontier = Frontier.expand(frontier, (u, next) -> {
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int v = targets[e];
+					if (open(v) && reached.compareAndSet(v, 0, 1))
+						next.add(v);
+				}
+			});
+		}
+		//Backward, only the nodes also reached forward are kept
+		frontier = Frontier.single(pivot);
+		claim(pivot, pivot);
+		while (!frontier.isEmpty()) {
+			frontier = Frontier.expand(frontier, (u, next) -> {
+				for (int e = revOffsets[u]; e < revOffsets[u + 1]; e++) {
+					int v = revTargets[e];
+					if (reached.get(v) == 1 && reached.compareAndSet(v, 1, 3) && claim(v, pivot))
+						next.add(v);
+				}
+			});
+		}
+	}
+
+	private long weight(int u) {
+		return (long) (offsets[u + 1] - offsets[u]) * (revOffsets[u + 1] - revOffsets[u]);
+	}
+
+	private void coloring() {
+		AtomicIntegerArray color = new AtomicIntegerArray(n);
+		//The last round each node was put in a frontier, so it is put there once per round
+		AtomicIntegerArray queued = new AtomicIntegerArray(n);
+		IntList remaining = openNodes();
+		int round = 0;
+		while (!remaining.isEmpty()) {
+			for (int i = 0; i < remaining.size(); i++)
+				color.set(remaining.get(i), remaining.get(i));
+
+			//Push the largest color forward until nothing changes
+			IntList frontier = remaining;
+			while (!frontier.isEmpty()) {
+				int stamp = ++round;
+				frontier = Frontier.expand(frontier, (u, next) -> {
+					int c = color.get(u);
+					for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+						int v = targets[e];
+						if (open(v) && raise(color, v, c) && queued.getAndSet(v, stamp) != stamp)
+							next.add(v);
+					}
+				});
+			}
+
+			//The roots take the nodes of their color that reach them
+			frontier = Frontier.expand(remaining, (u, next) -> {
+				if (color.get(u) == u && claim(u, u))
+					next.add(u);
+			});
+			while (!frontier.isEmpty()) {
+				frontier = Frontier.expand(frontier, (u, next) -> {
+					int c = color.get(u);
+					for (int e = revOffsets[u]; e < revOffsets[u + 1]; e++) {
+						int v = revTargets[e];
+						if (color.get(v) == c && claim(v, c))
+							next.add(v);
+					}
+				});
+			}
+			remaining = Frontier.expand(remaining, (u, next) -> {
+				if (open(u))
+					next.add(u);
+			});
+		}
+	}
+
+	//Atomic maximum on the color of v, returns true if it grew
+	private static boolean raise(AtomicIntegerArray color, int v, int c) {
+		while (true) {
+			int current = color.get(v);
+			if (current >= c)
+				return false;
+			if (color.compareAndSet(v, current, c))
+				return true;
+		}
+	}
+
+	private IntList openNodes() {
+		IntList all = new IntList(n);
+		for (int u = 0; u < n; u++) {
+			if (open(u))
+				all.add(u);
+		}
+		return all;
+	}
+}
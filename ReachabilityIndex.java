@@ -0,0 +1,181 @@
+import java.util.Random;
+
+//Answers "can u reach v" over a snapshot without searching the whole graph every time.
+//Nodes of one strongly connected component reach each other, so queries run on the condensation DAG,
+//whose component ids are a topological order: a component only reaches components with larger ids.
+//A small DAG keeps its whole transitive closure as bitsets. A larger one keeps GRAIL labels (Yildirim et al.):
+//for a few random depth-first traversals, the post-order rank of every component and the lowest rank below it.
+//If u reaches v, the interval of v is inside the interval of u in every traversal, so a missing containment
+//answers no at once, and only the queries that pass every label need a search, pruned by the same test.
+public class ReachabilityIndex {
+
+	//Largest condensation that keeps its transitive closure (CLOSURE_NODES^2 bits, 2MB)
+	private static final int CLOSURE_NODES = 1 << 12;
+	private static final int TRAVERSALS = 3;
+
+	private final CsrGraph g;
+	private final int[] component;
+	private final int count;
+	private final int[] offsets;
+	private final int[] targets;
+
+	//closure[c] has the bit of every component that c reaches, or null for GRAIL labels
+	private final long[][] closure;
+	//low[t * count + c] .. post[t * count + c] is the interval of c in traversal t
+	private final int[] low;
+	private final int[] post;
+
+	//Scratch space of the pruned search: the search that last visited each component, and the stack
+	private final int[] visitedBy;
+	private final int[] stack;
+	private int searches;
+
+	public ReachabilityIndex(CsrGraph g) {
+		this.g = g;
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(g);
+		component = scc.getComponentIds();
+		count = scc.getComponentsNum();
+		CsrGraph dag = scc.condensation();
+		offsets = dag.getOffsets();
+		targets = dag.getTargets();
+
+		if (count <= CLOSURE_NODES) {
+			closure = new long[count][(count + 63) >>> 6];
+			//Children have larger ids, so going down from the last id they are done before their parents
+			for (int c = count - 1; c >= 0; c--) {
+				long[] row = closure[c];
+				row[c >>> 6] |= 1L << c;
+				for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+					long[] child = closure[targets[e]];
+					for (int w = 0; w < row.length; w++)
+						row[w] |= child[w];
+				}
+			}
+			low = post = null;
+			visitedBy = stack = null;
+		}
+		else {
+			closure = null;
+			low = new int[TRAVERSALS * count];
+			post = new int[TRAVERSALS * count];
+			Random rand = new Random(count);
+			for (int t = 0; t < TRAVERSALS; t++)
+				label(t, rand);
+			visitedBy = new int[count];
+			stack = new int[count];
+		}
+	}
+
+	public boolean canReachFromTo(int from, int to) {
+		int u = component[g.checkNode(from)];
+		int v = component[g.checkNode(to)];
+		if (u == v)
+			return true;
+		if (u > v)
+			return false;
+		if (closure != null)
+			return (closure[u][v >>> 6] & (1L << v)) != 0;
+		if (!contains(u, v))
+			return false;
+		return search(u, v);
+	}
+
+	public CsrGraph getGraph() {
+		return g;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//True if the interval of v is inside the interval of u in every traversal
+	private boolean contains(int u, int v) {
+		for (int t = 0; t < TRAVERSALS; t++) {
+			int i = t * count;
+			if (low[i + v] < low[i + u] || post[i + v] > post[i + u])
+				return false;
+		}
+		return true;
+	}
+
+	//Depth-first search from u for v, entering only the components whose labels may still lead to v
+	private synchronized boolean search(int u, int v) {
+		int stamp = ++searches;
+		int top = 0;
+		stack[top++] = u;
+		visitedBy[u] = stamp;
+		while (top > 0) {
+			int c = stack[--top];
+			for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+				int d = targets[e];
+				if (d == v)
+					return true;
+				if (visitedBy[d] != stamp && d < v && contains(d, v)) {
+					visitedBy[d] = stamp;
+					stack[top++] = d;
+				}
+			}
+		}
+		return false;
+	}
+
+	//One depth-first traversal of the condensation, from the components in random order and with the children
+	//of every component taken from a random starting point, giving each component its post-order rank and the
+	//lowest rank below it
+	private void label(int t, Random rand) {
+		int base = t * count;
+		int[] order = new int[count];
+		for (int c = 0; c < count; c++)
+			order[c] = c;
+		for (int c = count - 1; c > 0; c--) {
+			int r = rand.nextInt(c + 1);
+			int temp = order[c];
+			order[c] = order[r];
+			order[r] = temp;
+		}
+		//The first child to take, and how many children are taken, of every component on the path
+		int[] start = new int[count];
+		int[] taken = new int[count];
+		boolean[] visited = new boolean[count];
+		int[] path = new int[count];
+		int rank = 0;
+		for (int root : order) {
+			if (visited[root])
+				continue;
+			int top = 0;
+			path[0] = root;
+			visited[root] = true;
+			start[root] = randomStart(root, rand);
+			low[base + root] = Integer.MAX_VALUE;
+			while (top >= 0) {
+				int c = path[top];
+				int degree = offsets[c + 1] - offsets[c];
+				if (taken[c] < degree) {
+					int d = targets[offsets[c] + (start[c] + taken[c]++) % degree];
+					if (!visited[d]) {
+						visited[d] = true;
+						start[d] = randomStart(d, rand);
+						low[base + d] = Integer.MAX_VALUE;
+						path[++top] = d;
+					}
+					else
+						low[base + c] = Math.min(low[base + c], low[base + d]);
+					continue;
+				}
+				//Leaving c
+				post[base + c] = rank;
+				low[base + c] = Math.min(low[base + c], rank);
+				rank++;
+				top--;
+				if (top >= 0)
+					low[base + path[top]] = Math.min(low[base + path[top]], low[base + c]);
+			}
+		}
+	}
+
+	private int randomStart(int c, Random rand) {
+		int degree = offsets[c + 1] - offsets[c];
+		return (degree == 0) ? 0 : rand.nextInt(degree);
+	}
+}
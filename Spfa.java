@@ -0,0 +1,73 @@
+//Queue-based Bellman-Ford (SPFA) over dense indices, for WeightedGraph, CsrGraph and MappedGraph.
+//Only the nodes whose distance just changed relax their edges again, so it stops as soon as a pass would change nothing.
+//Every node with a finite distance starts in the queue. A node whose path reaches |V| edges closes a negative cycle,
+//and it and every node it reaches get MINUS_INFINITY.
+class Spfa {
+
+	private Spfa() {
+	}
+
+	//Lowers distances and sets parents over the indices 0 .. distances.length - 1, of which nodesNum hold a node.
+	//Returns true if a negative cycle was found
+	static boolean run(IndexedEdges g, int nodesNum, int[] distances, int[] parents) {
+		int capacity = distances.length;
+		int[] length = new int[capacity];
+		boolean[] inQueue = new boolean[capacity];
+		//Every index is in the queue at most once, so a ring of that many slots is enough
+		int[] queue = new int[Math.max(1, capacity)];
+		int head = 0;
+		int size = 0;
+		for (int u = 0; u < capacity; u++) {
+			if (distances[u] < WeightedGraph.INFINITY) {
+				queue[size++] = u;
+				inQueue[u] = true;
+			}
+		}
+		boolean negativeCycle = false;
+		while (size > 0) {
+			int from = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			inQueue[from] = false;
+			if (distances[from] == WeightedGraph.MINUS_INFINITY)
+				continue;
+			for (int k = 0; k < g.degree(from); k++) {
+				int to = g.target(from, k);
+				int discoveredDistance = distances[from] + g.weight(from, k);
+				if (distances[to] == WeightedGraph.MINUS_INFINITY || discoveredDistance >= distances[to])
+					continue;
+				distances[to] = discoveredDistance;
+				parents[to] = from;
+				length[to] = length[from] + 1;
+				if (length[to] >= nodesNum) {
+					markNegative(g, to, distances);
+					negativeCycle = true;
+				}
+				else if (!inQueue[to]) {
+					queue[(head + size) % queue.length] = to;
+					size++;
+					inQueue[to] = true;
+				}
+			}
+		}
+		return negativeCycle;
+	}
+
+	//Sets MINUS_INFINITY on u and everything reachable from it
+	private static void markNegative(IndexedEdges g, int u, int[] distances) {
+		int[] stack = new int[distances.length];
+		int top = 0;
+		distances[u] = WeightedGraph.MINUS_INFINITY;
+		stack[top++] = u;
+		while (top > 0) {
+			int current = stack[--top];
+			for (int k = 0; k < g.degree(current); k++) {
+				int child = g.target(current, k);
+				if (distances[child] != WeightedGraph.MINUS_INFINITY) {
+					distances[child] = WeightedGraph.MINUS_INFINITY;
+					stack[top++] = child;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+//The strongly connected components of a snapshot, found in one depth-first pass (Tarjan's algorithm)
+//with explicit stacks instead of recursion, so long paths can't overflow the thread stack.
+//Components are numbered 0..count-1 in a topological order of the condensation: every edge between
+//two components goes from a lower id to a higher one. ParallelStronglyConnectedComponents gives the same result on all cores.
+public class StronglyConnectedComponents {
+
+	private final CsrGraph g;
+	//Component id of every dense index of the snapshot
+	private final int[] component;
+	private final int count;
+	//The dense indices of component c are members[starts[c]] .. members[starts[c+1]-1]
+	private final int[] starts;
+	private final int[] members;
+
+	public StronglyConnectedComponents(CsrGraph g) {
+		this(g, tarjan(g));
+	}
+
+	//From component ids that are already numbered 0..count-1 in topological order
+	private StronglyConnectedComponents(CsrGraph g, int[] component) {
+		this.g = g;
+		this.component = component;
+		int n = component.length;
+		int max = -1;
+		for (int u = 0; u < n; u++)
+			max = Math.max(max, component[u]);
+		count = max + 1;
+		starts = new int[count + 1];
+		for (int u = 0; u < n; u++)
+			starts[component[u] + 1]++;
+		for (int c = 0; c < count; c++)
+			starts[c + 1] += starts[c];
+		members = new int[n];
+		int[] fill = Arrays.copyOf(starts, count);
+		for (int u = 0; u < n; u++)
+			members[fill[component[u]]++] = u;
+	}
+
+	//From any labeling that gives the nodes of a component, and only them, the same dense index (e.g. one of its nodes).
+	//The labels are renumbered by a topological sort of the condensation (Kahn's algorithm)
+	static StronglyConnectedComponents fromLabels(CsrGraph g, int[] labels) {
+		int n = labels.length;
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		int[] id = new int[n];
+		Arrays.fill(id, -1);
+		int count = 0;
+		int[] component = new int[n];
+		for (int u = 0; u < n; u++) {
+			if (id[labels[u]] < 0)
+				id[labels[u]] = count++;
+			component[u] = id[labels[u]];
+		}
+
+		//Group the nodes by component, and count the edges entering each component from another one
+		int[] starts = new int[count + 1];
+		for (int u = 0; u < n; u++)
+			starts[component[u] + 1]++;
+		for (int c = 0; c < count; c++)
+			starts[c + 1] += starts[c];
+		int[] members = new int[n];
+		int[] fill = Arrays.copyOf(starts, count);
+		for (int u = 0; u < n; u++)
+			members[fill[component[u]]++] = u;
+		int[] inDegree = new int[count];
+		for (int u = 0; u < n; u++) {
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				if (component[targets[e]] != component[u])
+					inDegree[component[targets[e]]]++;
+			}
+		}
+
+		int[] rank = new int[count];
+		int[] queue = new int[count];
+		int head = 0;
+		int tail = 0;
+		for (int c = 0; c < count; c++) {
+			if (inDegree[c] == 0)
+				queue[tail++] = c;
+		}
+		while (head < tail) {
+			int c = queue[head];
+			rank[c] = head++;
+			for (int i = starts[c]; i < starts[c + 1]; i++) {
+				int u = members[i];
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int d = component[targets[e]];
+					if (d != c && --inDegree[d] == 0)
+						queue[tail++] = d;
+				}
+			}
+		}
+		for (int u = 0; u < n; u++)
+			component[u] = rank[component[u]];
+		return new StronglyConnectedComponents(g, component);
+	}
+
+	/* -------
+	 * GETTERS
+	 * -------
+	 */
+
+	public int getComponentsNum() {
+		return count;
+	}
+
+	//Component id of node u
+	public int componentOf(int u) {
+		return component[g.checkNode(u)];
+	}
+
+	public int getComponentSize(int c) {
+		return starts[c + 1] - starts[c];
+	}
+
+	//A copy of the component ids, indexed like the snapshot (see CsrGraph.idAt)
+	public int[] getComponentIds() {
+		return component.clone();
+	}
+
+	public CsrGraph getGraph() {
+		return g;
+	}
+
+	//The nodes of every component, in order of component id
+	public ArrayList<LinkedList<Integer>> getComponents() {
+		ArrayList<LinkedList<Integer>> ans = new ArrayList<>(count);
+		for (int c = 0; c < count; c++) {
+			LinkedList<Integer> soc = new LinkedList<>();
+			for (int i = starts[c]; i < starts[c + 1]; i++)
+				soc.add(g.idAt(members[i]));
+			ans.add(soc);
+		}
+		return ans;
+	}
+
+	//The DAG with a node for every component id and one edge for every pair of components joined by an edge
+	public CsrGraph condensation() {
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		int[] dagOffsets = new int[count + 1];
+		IntList dagTargets = new IntList();
+		//The last component that added an edge to each component, to skip parallel edges
+		int[] seen = new int[count];
+		Arrays.fill(seen, -1);
+		for (int c = 0; c < count; c++) {
+			for (int i = starts[c]; i < starts[c + 1]; i++) {
+				int u = members[i];
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int d = component[targets[e]];
+					if (d != c && seen[d] != c) {
+						seen[d] = c;
+						dagTargets.add(d);
+					}
+				}
+			}
+			dagOffsets[c + 1] = dagTargets.size();
+		}
+		return new CsrGraph(dagOffsets, dagTargets.toArray());
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Component ids of every dense index, numbered in topological order
+	private static int[] tarjan(CsrGraph g) {
+		int n = g.getNodesNum();
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+
+		int[] component = new int[n];
+		Arrays.fill(component, -1);
+		//Discovery time (0 for unvisited) and the lowest discovery time reachable through the DFS subtree
+		int[] discovery = new int[n];
+		int[] low = new int[n];
+		//The next edge to scan of each node on the DFS path
+		int[] next = new int[n];
+		int[] path = new int[n];
+		//Visited nodes whose component is not known yet
+		int[] open = new int[n];
+		int openTop = 0;
+		int time = 0;
+		int found = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (discovery[root] != 0)
+				continue;
+			int top = 0;
+			path[0] = root;
+			discovery[root] = low[root] = ++time;
+			next[root] = offsets[root];
+			open[openTop++] = root;
+			while (top >= 0) {
+				int v = path[top];
+				if (next[v] < offsets[v + 1]) {
+					int w = targets[next[v]++];
+					if (discovery[w] == 0) {
+						discovery[w] = low[w] = ++time;
+						next[w] = offsets[w];
+						open[openTop++] = w;
+						path[++top] = w;
+					}
+					else if (component[w] < 0)
+						low[v] = Math.min(low[v], discovery[w]);
+					continue;
+				}
+				//Leaving v
+				top--;
+				if (top >= 0)
+					low[path[top]] = Math.min(low[path[top]], low[v]);
+				if (low[v] == discovery[v]) {
+					//v is the root of a component: everything still open above it belongs to it
+					int w;
+					do {
+						w = open[--openTop];
+						component[w] = found;
+					} while (w != v);
+					found++;
+				}
+			}
+		}
+		//Components are completed sinks first, so reversing the numbering makes it topological
+		for (int u = 0; u < n; u++)
+			component[u] = found - 1 - component[u];
+		return component;
+	}
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+//A topological order of a DAG kept up to date as edges are added (Marchetti-Spaccamela, Nanni and Rohnert).
+//Every node has a rank, and an edge from a lower rank to a higher one changes nothing. For an edge x->y
+//with y ranked before x, a depth-first search from y over the nodes ranked up to x finds the nodes that must
+//move after x (reaching x itself means the edge closes a cycle). Only the ranks between y and x are rewritten,
+//keeping the relative order of the nodes that stay and of the nodes that move.
+class TopologicalOrder {
+
+	private final VertexIndex nodes;
+	//rank[i] is the rank of dense index i, at[r] the dense index of rank r (-1 for a removed node)
+	private int[] rank;
+	private int[] at;
+	private int ranks;
+
+	//Scratch space of the search: the search that last visited each dense index, and the stack
+	private int[] visitedBy;
+	private int[] stack;
+	private int searches;
+
+	//order holds the dense indices of every node, in a topological order
+	TopologicalOrder(VertexIndex nodes, int[] order) {
+		this.nodes = nodes;
+		int capacity = Math.max(16, nodes.capacity());
+		rank = new int[capacity];
+		visitedBy = new int[capacity];
+		stack = new int[capacity];
+		at = Arrays.copyOf(order, Math.max(16, order.length * 2));
+		ranks = order.length;
+		for (int r = 0; r < ranks; r++)
+			rank[order[r]] = r;
+	}
+
+	//A new node has no edges, so it can go last
+	void addNode(int u) {
+		if (u >= rank.length) {
+			int capacity = Math.max(rank.length * 2, u + 1);
+			rank = Arrays.copyOf(rank, capacity);
+			visitedBy = Arrays.copyOf(visitedBy, capacity);
+			stack = new int[capacity];
+		}
+		if (ranks == at.length)
+			compact();
+		rank[u] = ranks;
+		at[ranks++] = u;
+	}
+
+	void removeNode(int u) {
+		at[rank[u]] = -1;
+	}
+
+	//Reorders the nodes for a new edge from one dense index to another, before it is added.
+	//Throws if the edge would close a cycle, leaving the order as it was
+	void addEdge(int from, int to) {
+		int lower = rank[to];
+		int upper = rank[from];
+		if (lower > upper)
+			return;
+		if (from == to || reaches(to, from, upper))
+			throw new GraphException("Edge from " + nodes.nodeAt(from).getData() + " to " + nodes.nodeAt(to).getData() + " closes a cycle");
+
+		//The nodes that stay keep the lower ranks of the range, then come the nodes the search reached
+		int stamp = searches;
+		int[] moved = new int[upper - lower + 1];
+		int movedNum = 0;
+		int r = lower;
+		for (int i = lower; i <= upper; i++) {
+			int u = at[i];
+			if (u < 0)
+				continue;
+			if (visitedBy[u] == stamp)
+				moved[movedNum++] = u;
+			else {
+				at[r] = u;
+				rank[u] = r++;
+			}
+		}
+		for (int i = 0; i < movedNum; i++) {
+			at[r] = moved[i];
+			rank[moved[i]] = r++;
+		}
+		while (r <= upper)
+			at[r++] = -1;
+	}
+
+	//The data of every node, in order
+	ArrayList<Integer> toList() {
+		ArrayList<Integer> ans = new ArrayList<>(nodes.size());
+		for (int r = 0; r < ranks; r++) {
+			if (at[r] >= 0)
+				ans.add(nodes.nodeAt(at[r]).getData());
+		}
+		return ans;
+	}
+
+	/* -------
+	 * UTILITY
+	 * -------
+	 */
+
+	//Depth-first search from source over the nodes ranked up to upper, marking them with a new stamp.
+	//Returns true if it reaches target
+	private boolean reaches(int source, int target, int upper) {
+		int stamp = ++searches;
+		int top = 0;
+		stack[top++] = source;
+		visitedBy[source] = stamp;
+		while (top > 0) {
+			GraphNode node = nodes.nodeAt(stack[--top]);
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				int child = node.getChildAt(k).getIndex();
+				if (child == target)
+					return true;
+				if (visitedBy[child] != stamp && rank[child] <= upper) {
+					visitedBy[child] = stamp;
+					stack[top++] = child;
+				}
+			}
+		}
+		return false;
+	}
+
+	//Drops the ranks of removed nodes, and makes room when most of the ranks are in use
+	private void compact() {
+		int r = 0;
+		for (int i = 0; i < ranks; i++) {
+			if (at[i] >= 0) {
+				at[r] = at[i];
+				rank[at[r]] = r++;
+			}
+		}
+		ranks = r;
+		if (ranks > at.length / 2)
+			at = Arrays.copyOf(at, at.length * 2);
+	}
+}
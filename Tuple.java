@@ -23,7 +23,7 @@ public class Tuple<T, S> {
 	public boolean equals(Object obj) {
 		if (obj instanceof Tuple) {
 			Tuple<T, S> other = (Tuple<T, S>)obj;
-			if ((this.first == other.first)&&(this.second == other.second))
+			if (Objects.equals(this.first, other.first) && Objects.equals(this.second, other.second))
 				return true;
 		}
 		return false;
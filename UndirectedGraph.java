@@ -1,15 +1,22 @@
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class UndirectedGraph {
 
-	private HashMap <Integer, GraphNode> nodes;
+	//Switching thresholds of the direction-optimizing BFS
+	private static final int ALPHA = 14;
+	private static final int BETA = 24;
+
+	private VertexIndex nodes;
+
+	//Connected components, updated by addNode and connect. Removing an edge or a node drops it,
+	//and the next query rebuilds it from all the edges
+	private UnionFind components;
 
 	/* ------------
 	 * CONSTRUCTORS
@@ -17,10 +24,11 @@ public class UndirectedGraph {
 	 */
 	
 	public UndirectedGraph() {
-		nodes = new HashMap<Integer, GraphNode>();
+		nodes = new VertexIndex();
 	}
 	
 	public UndirectedGraph(LinkedList<Integer> list) {
+		this();
 		for (int item: list) {
 			GraphNode node = new GraphNode(item);
 			nodes.put(item, node);
@@ -30,15 +38,14 @@ public class UndirectedGraph {
 	public UndirectedGraph(UndirectedGraph other) {
 		this();
 		//deep copy just the data of the nodes
-		for (Map.Entry<Integer, GraphNode> entry : other.nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode node = new GraphNode(original.getData());
-			nodes.put(node.getData(), node);
+		for (int t : other.nodes.keySet()) {
+			GraphNode node = new GraphNode(t);
+			nodes.put(t, node);
 			}
 		//deep copy neighbours
-		for (Map.Entry<Integer, GraphNode> entry : other.nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode copy = nodes.get(original.getData());
+		for (int t : other.nodes.keySet()) {
+			GraphNode original = other.nodes.get(t);
+			GraphNode copy = nodes.get(t);
 			Iterator<GraphNode> i = original.getChildrenIterator();
 			while (i.hasNext()) {
 				int u = i.next().getData();
@@ -88,27 +95,61 @@ public class UndirectedGraph {
 			throw new GraphException("Node " + u + " is already in the graph");
 		GraphNode node = new GraphNode(u);
 		nodes.put(u, node);
+		if (components != null)
+			components.add(node.getIndex());
 	}
 	
 	public void connect(int u, int v) {
 		checkNodes(u,v);
 		nodes.get(u).addChild(nodes.get(v));
 		nodes.get(v).addChild(nodes.get(u));
+		if (components != null)
+			components.union(nodes.indexOf(u), nodes.indexOf(v));
+	}
+	
+	//Adds every edge of the list at once, in both directions, sorting them by node on all cores.
+	//Both ends of every edge must already be nodes, and an edge listed both ways counts as a duplicate.
+	//A new self loop is stored twice, as connect stores it
+	public void connectAll(EdgeList edges, DuplicateEdges policy) {
+		EdgeList both = new EdgeList(edges.size() * 2);
+		both.addAll(edges);
+		for (int i = 0; i < edges.size(); i++) {
+			if (edges.getFrom(i) != edges.getTo(i))
+				both.add(edges.getTo(i), edges.getFrom(i));
+		}
+		BulkLoader loader = new BulkLoader(nodes, both, policy, false);
+		//The loader adds the first copy of a self loop (listing it twice would make it a duplicate), the second is added here
+		int[] loops = newSelfLoops(edges);
+		loader.apply();
+		for (int u : loops)
+			nodes.get(u).addChild(nodes.get(u));
+		if (components != null) {
+			for (int i = 0; i < edges.size(); i++)
+				components.union(nodes.indexOf(edges.getFrom(i)), nodes.indexOf(edges.getTo(i)));
+		}
+	}
+	
+	public void connectAll(int[] u, int[] v) {
+		connectAll(new EdgeList(u, v, null), DuplicateEdges.THROW);
 	}
 	
 	public void disconnect(int u, int v) {
 		checkNodes(u,v);
 		nodes.get(u).removeChild(nodes.get(v));
 		nodes.get(v).removeChild(nodes.get(u));
+		components = null;
 	}
 	
 	public void delete(int u) {
-		Iterator<GraphNode> i = nodes.get(u).getChildrenIterator();
-		while (i.hasNext()) {
-			GraphNode v = i.next();
-			v.removeChild(nodes.get(u));
+		GraphNode node = nodes.get(u);
+		//Both directions of every edge go, so no neighbour keeps u as a parent
+		while (node.getOutDegree() > 0) {
+			GraphNode v = node.getChildAt(node.getOutDegree() - 1);
+			node.removeChild(v);
+			v.removeChild(node);
 		}
 		nodes.remove(u);
+		components = null;
 	}
 	
 	/*--------
@@ -116,12 +157,46 @@ public class UndirectedGraph {
 	 *--------
 	 */
 	public int ShortestDistanceFromTo(int from, int to) {
-		HashMap<Integer, Boolean> visited = makeVisitedMap();
-		HashMap<Integer, Integer> parent = makeParentMap();
-		HashMap<Integer, Integer> layer = makeLayerMap();
+		checkNodes(from, to);
+		int[] layer = makeLayerArray();
 		
-		bfs (from, visited, parent, layer);
-		return layer.get(to);
+		//The search can stop at the layer of to
+		bfs(nodes.indexOf(from), nodes.indexOf(to), makeParentArray(), layer);
+		return layer[nodes.indexOf(to)];
+	}
+	
+	//Hop counts from many sources at once, with one multi-source BFS for every 64 of them (see MultiSourceBfs)
+	public HopDistances hopDistancesFrom(int... sources) {
+		return new MultiSourceBfs(freeze()).distancesFrom(sources);
+	}
+	
+	//Whether there is a path between u and v, nearly O(1) while no edge or node is removed
+	public boolean connected(int u, int v) {
+		checkNodes(u, v);
+		UnionFind c = components();
+		return c.find(nodes.indexOf(u)) == c.find(nodes.indexOf(v));
+	}
+	
+	//A node that stands for the connected component of u: two nodes are connected if they have the same one.
+	//It may change with any edit of the graph
+	public int componentOf(int u) {
+		checkNode(u);
+		return nodes.nodeAt(components().find(nodes.indexOf(u))).getData();
+	}
+	
+	//The number of nodes in the connected component of u
+	public int componentSize(int u) {
+		checkNode(u);
+		return components().sizeOf(nodes.indexOf(u));
+	}
+	
+	public int getComponentsNum() {
+		return components().getSetsNum();
+	}
+	
+	//Component ids and sizes of every node at once, labeled in parallel over a snapshot of the graph
+	public ConnectedComponents connectedComponents() {
+		return new ConnectedComponents(freeze());
 	}
 	
 	public boolean isEdge(int u, int v) {
@@ -166,41 +241,43 @@ public class UndirectedGraph {
 	
 	public HashSet<Integer> getConnectedComponentOf(int u) {
 		checkNode(u);
-		HashMap<Integer, Boolean> visited = makeVisitedMap();
-		HashMap<Integer, Integer> parent = makeParentMap();
+		int[] layer = makeLayerArray();
 		
-		dfs(u, visited, parent);
+		bfs(nodes.indexOf(u), -1, makeParentArray(), layer);
 		
 		HashSet<Integer> nodesData = new HashSet<>();
 		
-		for (int t : visited.keySet()) {
-			if (Boolean.TRUE.equals(visited.get(t)))
-				nodesData.add(t);
+		for (int i = 0; i < layer.length; i++) {
+			if (layer[i] >= 0)
+				nodesData.add(nodes.nodeAt(i).getData());
 		}
 		return nodesData;
 	}
 	
 	public DirectedGraph dfsTree(int from){
 		checkNode(from);
-		HashMap<Integer, Boolean> visited = makeVisitedMap();
-		HashMap<Integer, Integer> parent = makeParentMap();
+		boolean[] visited = makeVisitedArray();
+		int[] parent = makeParentArray();
 		
-		dfs(from, visited, parent);
+		dfs(nodes.indexOf(from), visited, parent);
 		
 		return makeTree(from, parent);
 	}
 	
 	public DirectedGraph bfsTree(int from) {
 		checkNode(from);
-		HashMap<Integer, Boolean> visited = makeVisitedMap();
-		HashMap<Integer, Integer> parent = makeParentMap();
-		HashMap<Integer, Integer> layer = makeLayerMap();
+		int[] parent = makeParentArray();
 		
-		bfs(from, visited, parent, layer);
+		bfs(nodes.indexOf(from), -1, parent, makeLayerArray());
 		
 		return makeTree(from, parent);
 	}
 	
+	//Immutable array-based snapshot with every edge in both directions, it does not follow later edits of the graph
+	public CsrGraph freeze() {
+		return new CsrGraph(nodes, false);
+	}
+	
 	public Iterator<Integer> iterateV(){
 		return nodes.keySet().iterator();
 	}
@@ -216,40 +293,105 @@ public class UndirectedGraph {
 	 */
 	
 	/* ------------------- DEAPTH FIRST SEARCH -------------------*/
-	protected void dfs(int u, HashMap<Integer, Boolean> visited, HashMap<Integer, Integer> parent) {
-		if ((Boolean.TRUE.equals(visited.get(u))))
+	//u, visited and parent are all in terms of dense indices
+	protected void dfs(int u, boolean[] visited, int[] parent) {
+		if (visited[u])
 			return;
-		visited.put(u, true);
-		Iterator<GraphNode> i = nodes.get(u).getChildrenIterator();
+		visited[u] = true;
+		Iterator<GraphNode> i = nodes.nodeAt(u).getChildrenIterator();
 		while(i.hasNext()){
-			int child = i.next().getData();
-			if (Boolean.FALSE.equals(visited.get(child))) {
-				parent.put(child, u);
+			int child = i.next().getIndex();
+			if (!visited[child]) {
+				parent[child] = u;
 				dfs(child, visited, parent);
 			}
 		}	
 	}
 	
 	/* ------------------- BREADTH FIRST SEARCH -------------------*/
-	protected void bfs(int u, HashMap<Integer, Boolean> visited, HashMap<Integer, Integer> parent, HashMap<Integer, Integer> layer) {		
-		checkNode(u);
-		layer.put(u, 0);
-		visited.put(u,  true);
-		Queue<Integer> qu = new LinkedList<Integer>();
-		qu.add(u);
-		while(!qu.isEmpty()) {
-			int current = qu.poll();
-			//visit every child and push to the queue:
-			Iterator<GraphNode> i = nodes.get(current).getChildrenIterator();
-			while (i.hasNext()) {
-				int child = i.next().getData();
-				if (Boolean.FALSE.equals(visited.get(child))) {
-					visited.put(child, true);
-					parent.put(child, current);
-					layer.put(child, layer.get(current)+1);
-					qu.add(child);	
+	//Direction-optimizing BFS (Beamer et al.), with the frontiers kept as bitsets over the dense indices.
+	//A layer is expanded top-down, from the frontier to its unvisited neighbours, while the frontier is small,
+	//and bottom-up, with every unvisited node looking for a neighbour in the frontier, once the frontier holds
+	//more than 1/ALPHA of the edges left to check. It goes back to top-down when the frontier drops under 1/BETA of the nodes.
+	//source and target are dense indices (target -1 to reach everything, otherwise the search stops at its layer),
+	//parent and layer are indexed by dense indices and keep -1 for the nodes that were not reached.
+	//Large graphs on more than one core are searched by ParallelBfs instead
+	protected void bfs(int source, int target, int[] parent, int[] layer) {
+		if (nodes.size() >= DirectedGraph.PARALLEL_NODES && ForkJoinPool.getCommonPoolParallelism() > 1) {
+			new ParallelBfs(nodes).run(source, target, parent, layer);
+			return;
+		}
+		int capacity = nodes.capacity();
+		int words = (capacity + 63) >>> 6;
+		long[] visited = new long[words];
+		long[] frontier = new long[words];
+		long[] next = new long[words];
+		
+		//The degrees of the unvisited nodes, which is what a bottom-up layer may have to check
+		long edgesLeft = 0;
+		for (int i = 0; i < capacity; i++) {
+			if (nodes.nodeAt(i) != null)
+				edgesLeft += nodes.nodeAt(i).getOutDegree();
+		}
+		layer[source] = 0;
+		visited[source >>> 6] |= 1L << source;
+		frontier[source >>> 6] |= 1L << source;
+		int frontierSize = 1;
+		long frontierEdges = nodes.nodeAt(source).getOutDegree();
+		edgesLeft -= frontierEdges;
+		boolean bottomUp = false;
+		
+		for (int level = 0; frontierSize > 0 && (target < 0 || layer[target] < 0); level++) {
+			if (!bottomUp && frontierEdges > edgesLeft / ALPHA)
+				bottomUp = true;
+			else if (bottomUp && frontierSize < nodes.size() / BETA)
+				bottomUp = false;
+			Arrays.fill(next, 0);
+			frontierSize = 0;
+			frontierEdges = 0;
+			
+			for (int w = 0; w < words; w++) {
+				long bits = bottomUp ? ~visited[w] : frontier[w];
+				while (bits != 0) {
+					int u = (w << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					if (u >= capacity)
+						break;
+					GraphNode node = nodes.nodeAt(u);
+					if (node == null)
+						continue;
+					for (int k = 0; k < node.getOutDegree(); k++) {
+						int child = node.getChildAt(k).getIndex();
+						if (bottomUp) {
+							//u joins the next layer through the first neighbour it finds in the frontier
+							if ((frontier[child >>> 6] & (1L << child)) != 0) {
+								parent[u] = child;
+								layer[u] = level + 1;
+								next[w] |= 1L << u;
+								frontierSize++;
+								frontierEdges += node.getOutDegree();
+								break;
+							}
+						}
+						else if ((visited[child >>> 6] & (1L << child)) == 0) {
+							visited[child >>> 6] |= 1L << child;
+							parent[child] = u;
+							layer[child] = level + 1;
+							next[child >>> 6] |= 1L << child;
+							frontierSize++;
+							frontierEdges += node.getChildAt(k).getOutDegree();
+						}
+					}
 				}
 			}
+			if (bottomUp) {
+				for (int w = 0; w < words; w++)
+					visited[w] |= next[w];
+			}
+			edgesLeft -= frontierEdges;
+			long[] temp = frontier;
+			frontier = next;
+			next = temp;
 		}
 	}
 	
@@ -258,6 +400,24 @@ public class UndirectedGraph {
 	 * -------
 	 */
 	
+	//The nodes with a self loop in the list but not yet in the graph, each once
+	private int[] newSelfLoops(EdgeList edges) {
+		int[] loops = new int[edges.size()];
+		int count = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			GraphNode node = nodes.get(edges.getFrom(i));
+			if (edges.getFrom(i) == edges.getTo(i) && !node.isChild(node))
+				loops[count++] = edges.getFrom(i);
+		}
+		Arrays.sort(loops, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || loops[i] != loops[i - 1])
+				loops[distinct++] = loops[i];
+		}
+		return Arrays.copyOf(loops, distinct);
+	}
+	
 	protected void checkNode(int u) {
 		if (!(nodes.containsKey(u)))
 			throw new GraphException("Can't find node " + u);		
@@ -268,29 +428,28 @@ public class UndirectedGraph {
 		checkNode(v);
 	}
 	
-	protected DirectedGraph makeTree(int root, HashMap<Integer, Integer> parent){
+	protected DirectedGraph makeTree(int root, int[] parent){
 		DirectedGraph tree = new DirectedGraph();
-		for (int key : parent.keySet())
+		for (int key : nodes.keySet())
 			tree.addNode(key);
-		for (int key : parent.keySet()) {
-			if (parent.get(key) != null) 
-				tree.connectFromTo(parent.get(key), key);
+		for (int i = 0; i < parent.length; i++) {
+			if (parent[i] != -1) 
+				tree.connectFromTo(nodes.nodeAt(parent[i]).getData(), nodes.nodeAt(i).getData());
 		}
 		return tree;
 	}
 
 	//basically the same as the copy constructor, used to create other types of graph from an undirected graph
-	public HashMap<Integer, GraphNode> getNodesForGraph() {
-		HashMap<Integer, GraphNode> allNodes = new HashMap<>();
+	public VertexIndex getNodesForGraph() {
+		VertexIndex allNodes = new VertexIndex();
 		
-		for (Map.Entry<Integer, GraphNode> entry : nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode node = new GraphNode(original.getData());
-			allNodes.put(node.getData(), node);
+		for (int t : nodes.keySet()) {
+			GraphNode node = new GraphNode(t);
+			allNodes.put(t, node);
 			}
-		for (Map.Entry<Integer, GraphNode> entry : nodes.entrySet()) {
-			GraphNode original = entry.getValue();
-			GraphNode copy = allNodes.get(original.getData());
+		for (int t : nodes.keySet()) {
+			GraphNode original = nodes.get(t);
+			GraphNode copy = allNodes.get(t);
 			Iterator<GraphNode> i = original.getChildrenIterator();
 			while (i.hasNext()) {
 				int u = i.next().getData();
@@ -301,25 +460,40 @@ public class UndirectedGraph {
 		return allNodes;
 	}
 	
-	//private functions that create data structures for the traversals:
-	protected HashMap<Integer, Boolean> makeVisitedMap(){
-		HashMap<Integer, Boolean> visited = new HashMap<>();
-		for (int t : nodes.keySet())
-			visited.put(t, false);
-		return visited;
+	//The connected components, rebuilt from all the edges if an edge or a node was removed since they were last built
+	private UnionFind components() {
+		if (components == null) {
+			UnionFind c = new UnionFind(nodes.capacity());
+			for (int i = 0; i < nodes.capacity(); i++) {
+				if (nodes.nodeAt(i) != null)
+					c.add(i);
+			}
+			for (int i = 0; i < nodes.capacity(); i++) {
+				GraphNode node = nodes.nodeAt(i);
+				if (node == null)
+					continue;
+				for (int k = 0; k < node.getOutDegree(); k++)
+					c.union(i, node.getChildAt(k).getIndex());
+			}
+			components = c;
+		}
+		return components;
+	}
+	
+	//private functions that create data structures for the traversals, indexed by the dense indices of the nodes:
+	protected boolean[] makeVisitedArray(){
+		return new boolean[nodes.capacity()];
 	}
 	
-	protected HashMap<Integer, Integer> makeParentMap(){
-		HashMap<Integer, Integer> parent = new HashMap<>();
-		for (int t : nodes.keySet())
-			parent.put(t, null);
+	protected int[] makeParentArray(){
+		int[] parent = new int[nodes.capacity()];
+		Arrays.fill(parent, -1);
 		return parent;
 	}
 	
-	private HashMap<Integer, Integer> makeLayerMap(){
-		HashMap<Integer, Integer> layer = new HashMap<>();
-		for (int t : nodes.keySet())
-			layer.put(t, -1);
+	private int[] makeLayerArray(){
+		int[] layer = new int[nodes.capacity()];
+		Arrays.fill(layer, -1);
 		return layer;
 	}
 
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+//Disjoint sets over dense indices, with union by rank and path halving, so every operation is nearly O(1)
+class UnionFind {
+
+	private int[] parent;
+	private byte[] rank;
+	private int[] size;
+	private int sets;
+
+	UnionFind(int capacity) {
+		capacity = Math.max(16, capacity);
+		parent = new int[capacity];
+		rank = new byte[capacity];
+		size = new int[capacity];
+	}
+
+	//Makes u a set of its own
+	void add(int u) {
+		if (u >= parent.length) {
+			int capacity = Math.max(parent.length * 2, u + 1);
+			parent = Arrays.copyOf(parent, capacity);
+			rank = Arrays.copyOf(rank, capacity);
+			size = Arrays.copyOf(size, capacity);
+		}
+		parent[u] = u;
+		rank[u] = 0;
+		size[u] = 1;
+		sets++;
+	}
+
+	//The representative of the set of u
+	int find(int u) {
+		while (parent[u] != u) {
+			parent[u] = parent[parent[u]];
+			u = parent[u];
+		}
+		return u;
+	}
+
+	//Joins the sets of u and v, returns false if they were already one set
+	boolean union(int u, int v) {
+		int a = find(u);
+		int b = find(v);
+		if (a == b)
+			return false;
+		if (rank[a] < rank[b]) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+		parent[b] = a;
+		size[a] += size[b];
+		if (rank[a] == rank[b])
+			rank[a]++;
+		sets--;
+		return true;
+	}
+
+	int sizeOf(int u) {
+		return size[find(u)];
+	}
+
+	int getSetsNum() {
+		return sets;
+	}
+}
@@ -0,0 +1,134 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+//Keeps the nodes of a graph under dense indices, so that per-node algorithm state can live in plain arrays.
+//The data of a node is mapped to its index by an IntIdMap, and the indices of removed nodes are reused.
+public class VertexIndex {
+
+	private IntIdMap ids;
+	private GraphNode[] slots;
+	private int[] free;
+	private int freeNum;
+	private int capacity;
+
+	public VertexIndex() {
+		ids = new IntIdMap();
+		slots = new GraphNode[16];
+		free = new int[16];
+	}
+
+	/* --------
+	 * QUERIES
+	 * --------
+	 */
+
+	public GraphNode get(int u) {
+		int i = ids.get(u);
+		return i == IntIdMap.MISSING ? null : slots[i];
+	}
+
+	public boolean containsKey(int u) {
+		return ids.containsKey(u);
+	}
+
+	//Dense index of node u, or IntIdMap.MISSING
+	public int indexOf(int u) {
+		return ids.get(u);
+	}
+
+	//The node at dense index i, or null if the index is not in use
+	public GraphNode nodeAt(int i) {
+		return slots[i];
+	}
+
+	//Every index in use is smaller than the capacity, so it is the size for per-node arrays
+	public int capacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return ids.size();
+	}
+
+	public boolean isEmpty() {
+		return ids.isEmpty();
+	}
+
+	//A live view of the data of the nodes
+	public Set<Integer> keySet() {
+		return new AbstractSet<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				return new Iterator<Integer>() {
+					private int next = advance(0);
+
+					private int advance(int i) {
+						while (i < capacity && slots[i] == null)
+							i++;
+						return i;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < capacity;
+					}
+
+					@Override
+					public Integer next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						int u = slots[next].getData();
+						next = advance(next + 1);
+						return u;
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return (o instanceof Integer) && containsKey((Integer) o);
+			}
+
+			@Override
+			public int size() {
+				return ids.size();
+			}
+		};
+	}
+
+	/* ----------
+	 * EDIT INDEX
+	 * ----------
+	 */
+
+	public void put(int u, GraphNode node) {
+		int i = ids.get(u);
+		if (i == IntIdMap.MISSING) {
+			if (freeNum > 0)
+				i = free[--freeNum];
+			else {
+				if (capacity == slots.length)
+					slots = Arrays.copyOf(slots, capacity * 2);
+				i = capacity++;
+			}
+			ids.put(u, i);
+		}
+		slots[i] = node;
+		node.setIndex(i);
+	}
+
+	public GraphNode remove(int u) {
+		int i = ids.remove(u);
+		if (i == IntIdMap.MISSING)
+			return null;
+		GraphNode node = slots[i];
+		slots[i] = null;
+		if (freeNum == free.length)
+			free = Arrays.copyOf(free, freeNum * 2);
+		free[freeNum++] = i;
+		return node;
+	}
+}
@@ -1,35 +1,42 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class WeightedGraph extends DirectedGraph {
 		
-	protected HashMap<Tuple<Integer,Integer>, Edge> weights;
-	private final int INFINITY = (Integer.MAX_VALUE)/10;
-	private final int SOURCE = Integer.MIN_VALUE;
-	private final int MINUS_INFINITY = (Integer.MIN_VALUE)/10;
-	
+	static final int INFINITY = (Integer.MAX_VALUE)/10;
+	static final int MINUS_INFINITY = (Integer.MIN_VALUE)/10;
 	
+	//Kept up to date on every edit so that queries can pick an algorithm without scanning the edges
+	protected int negativeEdges;
 	
 	public WeightedGraph(){
-		weights = new HashMap<>();
+		super();
 	}
 	//Constructs a weighted graph from a directed graph, with edges equally set to w
 	public WeightedGraph(DirectedGraph g, int w) {
 		super(g);
-		Iterator<Edge> i = this.iterateE();
-		while (i.hasNext()) {
-			Edge e = i.next();
-			e.setWeight(w);
-			weights.put(e.getUV(), e);		
+		for (int i = 0; i < nodes.capacity(); i++) {
+			GraphNode node = nodes.nodeAt(i);
+			if (node == null)
+				continue;
+			for (int k = 0; k < node.getOutDegree(); k++)
+				node.setWeightOf(node.getChildAt(k), w);
 		}
+		negativeEdges = countNegativeEdges();
+	}
+	//Copy constructor, keeps the weights
+	public WeightedGraph(WeightedGraph other) {
+		super(other);
+		negativeEdges = other.negativeEdges;
 	}
 	//Constructs a weighted graph from a directed graph, with edges equally set to 0
 	public WeightedGraph(DirectedGraph g) {
@@ -69,10 +76,13 @@ public class WeightedGraph extends DirectedGraph {
 	 */
 	
 	public void connectFromTo(int from, int to, int w) {
+		checkNodes(from, to);
 		if (!isEdgeFromTo(from, to)) {
-			Edge e = new Edge(from, to, w);
-			nodes.get(from).addChild(nodes.get(to));
-			weights.put(new Tuple<>(from, to), e);
+			orderEdge(from, to);
+			nodes.get(from).addChild(nodes.get(to), w);
+			if (w < 0)
+				negativeEdges++;
+			structureChanged();
 		}
 		else
 			throw new GraphException("Edge from " + from + " to " + to + " already exists");
@@ -83,16 +93,33 @@ public class WeightedGraph extends DirectedGraph {
 		connectFromTo(from, to, 0);
 	}
 	
+	//Same as DirectedGraph.connectAll, but keeping the weights in the list
+	@Override
+	public void connectAll(EdgeList edges, DuplicateEdges policy) {
+		negativeEdges += bulkConnect(edges, policy, true);
+	}
+	
+	//The i-th edge goes from from[i] to to[i] with weight weights[i]
+	public void connectAll(int[] from, int[] to, int[] weights, DuplicateEdges policy) {
+		connectAll(new EdgeList(from, to, weights), policy);
+	}
+	
 	@Override
 	public void disconnectFromTo(int from, int to) {
 		checkEdge(from, to);
+		if (weightEdgeFromTo(from, to) < 0)
+			negativeEdges--;
 		nodes.get(from).removeChild(nodes.get(to));
-		weights.remove(new Tuple<>(from, to));
+		structureChanged();
 	}
 	
 	public void setWeight(int from, int to, int w) {
 		checkEdge(from, to);
-		weights.get(new Tuple(from, to)).setWeight(w);
+		if (weightEdgeFromTo(from, to) < 0)
+			negativeEdges--;
+		nodes.get(from).setWeightOf(nodes.get(to), w);
+		if (w < 0)
+			negativeEdges++;
 	}
 	
 	/* ----------------
@@ -101,162 +128,159 @@ public class WeightedGraph extends DirectedGraph {
 	 */
 	
 	/* ------------------- DIJKSTRA'S -------------------*/
+	//With a stop node the search ends as soon as the distance to stop is final,
+	//so the distances of nodes that were not settled by then are only upper bounds
 	public HashMap<Integer, Integer> Dijkstras(int source, Integer stop, HashMap<Integer, Integer> pred){
+		checkNode(source);
+		if (stop != null)
+			checkNode(stop);
 		
-		//Init the return map
-		HashMap<Integer, Integer> distances = new HashMap<>();
-		
-		//Init the received map to store predecessors
-		for (int t : nodes.keySet()) {
-			pred.put(t, null);
-		}
-		
-		//Init a map to store estimated distances from 
-		for (int t : nodes.keySet()) {
-			distances.put(t, INFINITY);
-		}
-		
+		//Estimated distances and predecessors are kept by dense index
+		int[] distances = makeDistanceArray();
+		int[] parents = makeParentArray();
+		dijkstras(nodes.indexOf(source), (stop == null) ? -1 : nodes.indexOf(stop), distances, parents);
+		return toMaps(distances, parents, pred);
+	}
+	
+	//Dijkstra's over dense indices, stops once stopIndex is settled (-1 to settle everything)
+	private void dijkstras(int s, int stopIndex, int[] distances, int[] parents) {
 		//The distance from the source is 0
-		distances.put(source, 0);
-		
-		//Put all nodes in a priority queue with a custom comparator that looks at their currently-known distance from s
-		// (The more efficient Dijkstra's is implemented with a Fibonacci heap, while this one uses Java's pq implemented with a min-heap)
-		PriorityQueue<Integer> S = new PriorityQueue<Integer>(
-				(s1, s2) -> Integer.compare(distances.get(s1), distances.get(s2))
-		);
+		distances[s] = 0;
 		
-		for(int t: distances.keySet()) {
-			S.add(t);
-		}
+		//Nodes enter an indexed heap keyed by their currently-known distance from s only once they are discovered,
+		//and a better path found later lowers their key in place
+		IndexedMinHeap S = new IndexedMinHeap(nodes.capacity());
+		S.insert(s, 0);
 		
 		while (!S.isEmpty()) {
 			//Greedily take the node closest to the source
 			int selected = S.poll();
+			//We are now sure of the distance from the source to the selected node
 			//Sometimes we do not need ALL the distances:
-			if (selected != stop) {
-				//We are now sure of the distance from the source to the selected node
-				//See if we found better paths to its children
-				Iterator<Integer> i = iterateChildren(selected);
-				while (i.hasNext()) {
-					int child = i.next();
-					int discoveredDistance = distances.get(selected) + weightEdgeFromTo(selected, child);
-					if (discoveredDistance < distances.get(child)) {
-						pred.put(child, selected);
-						distances.put(child, discoveredDistance);
-						//Make sure that child changes position in the priority queue if needed
-						S.remove(child);
-						S.add(child);
-					}
-				}	
+			if (selected == stopIndex)
+				return;
+			//See if we found better paths to its children
+			GraphNode node = nodes.nodeAt(selected);
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				int c = node.getChildAt(k).getIndex();
+				int discoveredDistance = distances[selected] + node.getWeightAt(k);
+				if (discoveredDistance < distances[c]) {
+					parents[c] = selected;
+					distances[c] = discoveredDistance;
+					//Make sure that child changes position in the priority queue if needed
+					S.insertOrDecrease(c, discoveredDistance);
+				}
 			}
 		}
-		return distances;
+	}
+	
+	/* ------------------- DELTA STEPPING -------------------*/
+	//Same answer as Dijkstras(source, null, pred), computed in parallel over a snapshot of the graph
+	public HashMap<Integer, Integer> deltaStepping(int source, int delta, HashMap<Integer, Integer> pred){
+		checkNode(source);
+		return new DeltaStepping(freeze(), delta).shortestPathsFrom(source, pred);
+	}
+	
+	/* ------------------- A* -------------------*/
+	//Weight of the shortest path from one node to another (INFINITY if there is none), for non-negative weights.
+	//Nodes are taken in order of distance from the source plus the heuristic's estimate of the rest of the way,
+	//e.g. new Landmarks(freeze(), 8) for graphs without coordinates.
+	public int aStar(int from, int to, Heuristic h) {
+		checkNodes(from, to);
+		if (!positiveWeights())
+			throw new GraphException("A* can't handle negative weights");
+		return AStar.run(edges(), nodes.capacity(), nodes.indexOf(from), nodes.indexOf(to), h);
 	}
 	
 	/* ------------------- BELLMAN FORD -------------------*/
+	//Nodes on or reachable from a negative cycle get the distance MINUS_INFINITY
 	public HashMap<Integer, Integer> bellmanFord(int source, HashMap<Integer, Integer> pred){
+			checkNode(source);
 			
-			//Init the return map
-			HashMap<Integer, Integer> distances = new HashMap<>();
+			//Estimated distances and predecessors are kept by dense index
+			int[] distances = makeDistanceArray();
+			int[] parents = makeParentArray();
 			
-			//Init the received map to store predecessors
-			for (int t : nodes.keySet()) {
-				pred.put(t, null);
+			//The distance from the source is 0
+			distances[nodes.indexOf(source)] = 0;
+			
+			spfa(distances, parents);
+			return toMaps(distances, parents, pred);
+	}
+	
+	//Bellman-Ford (SPFA, see Spfa) over dense indices. Returns true if a negative cycle was found
+	private boolean spfa(int[] distances, int[] parents) {
+		return Spfa.run(edges(), getNodesNum(), distances, parents);
+	}
+	
+	//The edges for the algorithms shared with the snapshots
+	private IndexedEdges edges() {
+		return new IndexedEdges() {
+			@Override
+			public int degree(int u) {
+				GraphNode node = nodes.nodeAt(u);
+				return (node == null) ? 0 : node.getOutDegree();
 			}
 			
-			//Init a map to store estimated distances from 
-			for (int t : nodes.keySet()) {
-				distances.put(t, INFINITY);
+			@Override
+			public int target(int u, int k) {
+				return nodes.nodeAt(u).getChildAt(k).getIndex();
 			}
 			
-			//The distance from the source is 0
-			distances.put(source, 0);
+			@Override
+			public int weight(int u, int k) {
+				return nodes.nodeAt(u).getWeightAt(k);
+			}
 			
-			int V = getNodesNum();
+			@Override
+			public int idAt(int u) {
+				return nodes.nodeAt(u).getData();
+			}
+		};
+	}
+	
+	//The edges turned around, from the parents kept by every node
+	private IndexedEdges reverseEdges() {
+		return new IndexedEdges() {
+			@Override
+			public int degree(int u) {
+				GraphNode node = nodes.nodeAt(u);
+				return (node == null) ? 0 : node.getInDegree();
+			}
 			
-			for (int i = 0; i < V-1; i++) {
-				//Relax all edges
-				Iterator<Edge> j = iterateE();
-				while (j.hasNext()) {
-					Edge e = j.next();
-					int from = e.getFrom();
-					int to = e.getTo();
-					if (distances.get(from) + e.getWeight() < distances.get(to)){
-						distances.put(to, (distances.get(from) + e.getWeight()));
-						pred.put(to, from);
-					}
-				}
+			@Override
+			public int target(int u, int k) {
+				return nodes.nodeAt(u).getParentAt(k).getIndex();
 			}
-			//After |V|-1 iteration, any distance that keeps updating is indicative of a negative cycle:
-			Iterator<Edge> j = iterateE();
-			while (j.hasNext()) {
-				Edge e = j.next();
-				int from = e.getFrom();
-				int to = e.getTo();
-				if (distances.get(from) + e.getWeight() < distances.get(to)){
-					distances.put(to, MINUS_INFINITY);
-				}
+			
+			@Override
+			public int weight(int u, int k) {
+				return nodes.nodeAt(u).getParentWeightAt(k);
 			}
-			return distances;
+			
+			@Override
+			public int idAt(int u) {
+				return nodes.nodeAt(u).getData();
+			}
+		};
 	}
 	
 	/* ------------------- Johnson's -------------------*/
+	//All shortest paths as a dense matrix over a snapshot of the graph, the Dijkstra's from every node run in parallel
+	public DistanceMatrix allPairsShortestPaths() {
+		return new Johnsons(freeze()).matrix();
+	}
+	
+	//Same distances keyed by (from, to), which costs a boxed map entry per pair. Prefer allPairsShortestPaths()
 	public HashMap<Tuple<Integer,Integer>, Integer> johnsons(){
-		
-		//Create a copy of the graph
-		WeightedGraph copy = new WeightedGraph(this);
-		
-		//Add a source node
-		int s = SOURCE;
-		
-		if (isNode(SOURCE))
-			s = searchAlternative(SOURCE);
-		
-		//Connect the source to all nodes with weight 0
-		Iterator<Integer> i = copy.iterateV();
-		while (i.hasNext()) {
-			copy.connectFromTo(s, i.next());
-		}
-		
-		//Run Bellman-Ford from the source to determine the weight to add to each edge
-		HashMap<Integer, Integer> pred = new HashMap<>();
-		HashMap<Integer, Integer> distances = copy.bellmanFord(s, pred);
-		
-		//Check for negative cycles:
-		for (Integer key : distances.keySet()) {
-			if (distances.get(key) == MINUS_INFINITY)
-				throw new GraphException("Graph has negative cycle, can't answer query");
-		}
-		
-		//Add to each edge (u,v) the value: distance s->u - distance s->v
-		Iterator<Edge> iterEdge = copy.iterateE(); //iterate the original edges while changing the copied ones
-		while (iterEdge.hasNext()) {
-			Edge e = iterEdge.next();
-			int u = e.getFrom();
-			int v = e.getTo();
-			int su = distances.get(u);
-			int sv = distances.get(v);
-			e.setWeight(e.getWeight() + su - sv);
-		}
-		
-		//Let go of the source
-		copy.removeNode(s);
-		
-		//Make sure that now all the weights are positive
-		if (!copy.positiveWeights())
-			throw new GraphException("Johnson failed. fire dev");
-		
-		//Init a map for the answer
+		DistanceMatrix m = allPairsShortestPaths();
+		CsrGraph g = m.getGraph();
+		int n = g.getNodesNum();
 		HashMap<Tuple<Integer, Integer>, Integer> ans = new HashMap<>();
-				
-		//Run dijkstras from every vertex to every vertex and store shortest distance
-		pred.clear();
-		Iterator<Integer> iterVer = copy.iterateV();
-		while (iterVer.hasNext()) {
-			int u = iterVer.next();
-			HashMap<Integer, Integer> localDist = copy.Dijkstras(u, null, pred);
-			for (int v : localDist.keySet())
-				ans.put(new Tuple(u, v), localDist.get(v));
+		for (int u = 0; u < n; u++) {
+			int[] row = m.getRow(g.idAt(u));
+			for (int v = 0; v < n; v++)
+				ans.put(new Tuple<>(g.idAt(u), g.idAt(v)), row[v]);
 		}
 		return ans;
 	}
@@ -276,37 +300,52 @@ public class WeightedGraph extends DirectedGraph {
 	}
 	
 	public boolean positiveWeights() {
-		for (Edge e : weights.values()) {
-			if (e.getWeight() < 0)
-				return false;
+		return negativeEdges == 0;
+	}
+	
+	protected int countNegativeEdges() {
+		int count = 0;
+		for (int i = 0; i < nodes.capacity(); i++) {
+			GraphNode node = nodes.nodeAt(i);
+			if (node == null)
+				continue;
+			for (int k = 0; k < node.getOutDegree(); k++) {
+				if (node.getWeightAt(k) < 0)
+					count++;
+			}
 		}
-		return true;
+		return count;
 	}
 	
+	//Same answer as bellmanFord(source, pred), with the edges of a snapshot relaxed in parallel
+	public HashMap<Integer, Integer> parallelBellmanFord(int source, HashMap<Integer, Integer> pred){
+		checkNode(source);
+		return new ParallelBellmanFord(freeze()).shortestPathsFrom(source, pred);
+	}
+	
+	//Starting every node at distance 0 acts as a virtual source with an edge to each of them, so any negative cycle is found
 	public boolean hasNegativeCycle() {
-		HashMap<Integer, Integer> pred = new HashMap<>();
-		int source = getRandNode();
-		HashMap<Integer, Integer> distances = bellmanFord(source, pred);
-		for (Integer key : distances.keySet()) {
-			if (distances.get(key) == MINUS_INFINITY)
-				return true;
-		}
-		return false;
+		int[] distances = new int[nodes.capacity()];
+		return spfa(distances, makeParentArray());
 	}
 	
 	public int weightEdgeFromTo(int from, int to) {
-		checkNodes(from,to);
-		return (weights.get(new Tuple(from, to))).getWeight();
+		checkEdge(from, to);
+		return nodes.get(from).getWeightOf(nodes.get(to));
 	}
 	
 	public int WeightOfShortestPathFromTo(int from, int to) {
+		checkNodes(from, to);
+		if (positiveWeights()) {
+			if (getNodesNum() >= PARALLEL_NODES && ForkJoinPool.getCommonPoolParallelism() > 1)
+				return new DeltaStepping(freeze()).distanceFromTo(from, to);
+			//A point-to-point query meets in the middle, the backward search running over the parents of every node
+			return BidirectionalDijkstras.run(edges(), reverseEdges(), nodes.capacity(), nodes.indexOf(from), nodes.indexOf(to));
+		}
+		if (getNodesNum() >= PARALLEL_NODES && ForkJoinPool.getCommonPoolParallelism() > 1)
+			return new ParallelBellmanFord(freeze()).distanceFromTo(from, to);
 		HashMap<Integer, Integer> pred = new HashMap<>();
-		HashMap<Integer, Integer> pathWeight;
-		if (positiveWeights())
-			pathWeight = Dijkstras(from, to, pred);
-		else
-			pathWeight = bellmanFord(from, pred);
-		return pathWeight.get(to);
+		return bellmanFord(from, pred).get(to);
 	}
 	
 	//checks if every edge has an opposite edge with the same weight
@@ -343,8 +382,13 @@ public class WeightedGraph extends DirectedGraph {
 	@Override
 	public Set<Edge> getEdges(){
 		Set<Edge> edges = new HashSet<>();
-		for (Edge e : weights.values()) 
-			edges.add(new Edge(e.getFrom(), e.getTo(), e.getWeight()));
+		for (int i = 0; i < nodes.capacity(); i++) {
+			GraphNode node = nodes.nodeAt(i);
+			if (node == null)
+				continue;
+			for (int k = 0; k < node.getOutDegree(); k++)
+				edges.add(new Edge(node.getData(), node.getChildAt(k).getData(), node.getWeightAt(k)));
+		}
 		return edges;
 	}
 	
@@ -352,14 +396,21 @@ public class WeightedGraph extends DirectedGraph {
 		return nodes.keySet().iterator();
 	}
 	
+	//The edges are copies, changing them does not change the graph
 	@Override
 	public Iterator<Edge> iterateE(){
-		return weights.values().iterator();
+		return getEdges().iterator();
 	}
 	
 	public Edge getEdegeFromTo(int from, int to) {
 		checkEdge(from, to);
-		return new Edge(weights.get(new Tuple(from, to)));
+		return new Edge(from, to, weightEdgeFromTo(from, to));
+	}
+	
+	//Immutable array-based snapshot (with weights) for read-heavy workloads
+	@Override
+	public CsrGraph freeze() {
+		return new CsrGraph(nodes, true);
 	}
 	
 	public Edge getAnyEdge() {
@@ -374,12 +425,32 @@ public class WeightedGraph extends DirectedGraph {
 	
 	protected void checkEdge(int u, int v) {
 		checkNodes(u, v);
-		if (!(weights.containsKey(new Tuple(u, v))))
+		if (!(isEdgeFromTo(u, v)))
 			throw new GraphException("Graph does not contain edge from " + u + " to " + v);
 	}
 	
+	//Per-node state for the shortest path algorithms, indexed by the dense indices of the nodes:
+	protected int[] makeDistanceArray() {
+		int[] distances = new int[nodes.capacity()];
+		Arrays.fill(distances, INFINITY);
+		return distances;
+	}
+	
+	//Translates dense distances and parents to the maps returned by the algorithms
+	protected HashMap<Integer, Integer> toMaps(int[] distances, int[] parents, HashMap<Integer, Integer> pred) {
+		HashMap<Integer, Integer> ans = new HashMap<>();
+		for (int i = 0; i < nodes.capacity(); i++) {
+			GraphNode node = nodes.nodeAt(i);
+			if (node != null) {
+				ans.put(node.getData(), distances[i]);
+				pred.put(node.getData(), parents[i] < 0 ? null : nodes.nodeAt(parents[i]).getData());
+			}
+		}
+		return ans;
+	}
+	
 	protected ArrayList<Edge> getSortedEdges() {
-		ArrayList<Edge> ans = new ArrayList<>(weights.values());
+		ArrayList<Edge> ans = new ArrayList<>(getEdges());
 		Collections.sort(ans, Comparator.comparingInt(Edge :: getWeight));
 		return ans;
 	}
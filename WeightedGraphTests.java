@@ -1,8 +1,20 @@
 import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class WeightedGraphTests {
 	
@@ -88,6 +100,30 @@ class WeightedGraphTests {
 		
 		assertFalse(g.isDAG());
 	}
+	
+	@Test
+	void topologicalLayers() {
+		assertEquals(List.of(0, 1, 4), g.topologicalSort().subList(0, 3));
+		ArrayList<ArrayList<Integer>> layers = g.topologicalLayers();
+		assertEquals(4, layers.size());
+		assertEquals(2, layers.get(3).size());
+		
+		g.connectFromTo(3, 1);
+		assertNull(g.topologicalLayers());
+	}
+	
+	@Test
+	void onlineTopologicalOrder() {
+		g.keepTopologicalOrder();
+		assertThrows(GraphException.class, () -> g.connectFromTo(3, 0, 1));
+		assertFalse(g.isEdgeFromTo(3, 0));
+		
+		g.addNode(5);
+		g.connectFromTo(5, 0, 1);
+		assertTrue(g.isDAG());
+		assertEquals(5, g.topologicalSort().get(0));
+		assertEquals(6, g.topologicalSort().size());
+	}
 		
 	@Test
 	void reachability() {
@@ -99,10 +135,78 @@ class WeightedGraphTests {
 		assertFalse(g.canReachFromTo(3, 2), "3 to 2");
 	}
 	
+	@Test
+	void reachabilityIndex() {
+		ReachabilityIndex index = g.reachability();
+		assertTrue(index.canReachFromTo(4, 3));
+		assertFalse(index.canReachFromTo(2, 4));
+		
+		//The index does not follow edits, but the graph's queries do
+		g.connectFromTo(3, 0, 1);
+		assertFalse(index.canReachFromTo(2, 0));
+		assertTrue(g.canReachFromTo(3, 2));
+		assertTrue(g.canReachFromTo(4, 1));
+		assertFalse(g.canReachFromTo(2, 1));
+	}
+	
 	@Test
 	void checkDijkstras() {
 		assertEquals(3, g.WeightOfShortestPathFromTo(0,2));
 		assertEquals(2, g.WeightOfShortestPathFromTo(0,3));
+		
+		//The backward search reads the weights through the parents, which must follow the edits
+		g.setWeight(4, 3, 5);
+		assertEquals(6, g.WeightOfShortestPathFromTo(0,3));
+		g.disconnectFromTo(1, 3);
+		assertEquals(6, g.WeightOfShortestPathFromTo(0,3));
+		g.removeNode(4);
+		assertEquals(WeightedGraph.INFINITY, g.WeightOfShortestPathFromTo(0,3));
+		assertEquals(4, g.WeightOfShortestPathFromTo(0,2));
+	}
+	
+	@Test
+	@DisplayName ("delta stepping agrees with Dijkstra's")
+	void checkDeltaStepping() {
+		HashMap<Integer, Integer> pred = new HashMap<>();
+		for (int delta = 1; delta <= 4; delta++)
+			assertEquals(g.Dijkstras(0, null, new HashMap<>()), g.deltaStepping(0, delta, pred));
+		assertEquals(4, pred.get(3));
+		assertNull(pred.get(0));
+	}
+	
+	@Test
+	@DisplayName ("delta stepping on a large random graph")
+	void checkDeltaSteppingLarge() {
+		//Node 0 reaches 600 nodes over light edges, so the buckets hold frontiers past DeltaStepping.GRAIN
+		WeightedGraph w = new WeightedGraph();
+		Random random = new Random(9);
+		int n = 3000;
+		for (int i = 0; i < n; i++)
+			w.addNode(i);
+		for (int i = 1; i <= 600; i++)
+			w.connectFromTo(0, i, random.nextInt(3));
+		for (int k = 0; k < 5 * n; k++) {
+			int u = random.nextInt(n);
+			int v = random.nextInt(n);
+			if (u != v && !w.isEdgeFromTo(u, v))
+				w.connectFromTo(u, v, random.nextInt(100));
+		}
+		HashMap<Integer, Integer> expected = w.Dijkstras(0, null, new HashMap<>());
+		for (int delta : new int[] {1, 5, 40, 1000}) {
+			HashMap<Integer, Integer> pred = new HashMap<>();
+			HashMap<Integer, Integer> d = w.deltaStepping(0, delta, pred);
+			assertEquals(expected, d, "delta " + delta);
+			for (int v = 1; v < n; v++) {
+				if (pred.get(v) != null)
+					assertEquals(d.get(v), d.get(pred.get(v)) + w.weightEdgeFromTo(pred.get(v), v));
+			}
+		}
+		
+		//A delta of 1 under weights near 1e9 would need a bucket for every distance
+		w.addNode(n);
+		w.connectFromTo(n - 1, n, 1_000_000_000);
+		assertThrows(GraphException.class, () -> w.deltaStepping(0, 1, new HashMap<>()));
+		assertEquals(w.Dijkstras(0, null, new HashMap<>()), new DeltaStepping(w.freeze()).shortestPathsFrom(0, new HashMap<>()));
 	}
 	
 	@Test
@@ -120,6 +224,66 @@ class WeightedGraphTests {
 		assertEquals(2, g.WeightOfShortestPathFromTo(0,3));
 	}
 	
+	@Test
+	void checkParallelBellmanFord() {
+		g.setWeight(1 ,3 ,-2);
+		HashMap<Integer, Integer> pred = new HashMap<>();
+		assertEquals(g.bellmanFord(0, new HashMap<>()), g.parallelBellmanFord(0, pred));
+		assertEquals(1, pred.get(3));
+		
+		g.addNode(5);
+		g.connectFromTo(3, 5, -1);
+		g.connectFromTo(5, 4, -1);
+		HashMap<Integer, Integer> d = g.parallelBellmanFord(0, new HashMap<>());
+		assertEquals(g.bellmanFord(0, new HashMap<>()), d);
+		assertEquals(WeightedGraph.MINUS_INFINITY, d.get(2));
+		assertEquals(0, d.get(0));
+	}
+	
+	@Test
+	@DisplayName ("parallel Bellman-Ford on a large graph with a negative cycle")
+	void checkParallelBellmanFordLarge() {
+		//Enough edges for every chunk of the partition. Nodes 0..599 form a DAG with some negative weights,
+		//300 leads into a negative cycle 600..609 that reaches 610..699, and 700..799 can't be reached from 0
+		WeightedGraph w = new WeightedGraph();
+		Random random = new Random(5);
+		for (int i = 0; i < 800; i++)
+			w.addNode(i);
+		for (int k = 0; k < 4000; k++) {
+			int u = random.nextInt(600);
+			int v = random.nextInt(600);
+			if (u < v && !w.isEdgeFromTo(u, v))
+				w.connectFromTo(u, v, random.nextInt(56) - 5);
+		}
+		for (int i = 0; i < 600; i++) {
+			if (!w.isEdgeFromTo(i, i + 1))
+				w.connectFromTo(i, i + 1, 7);
+		}
+		w.disconnectFromTo(599, 600);
+		for (int i = 0; i < 10; i++)
+			w.connectFromTo(600 + i, 600 + (i + 1) % 10, -1);
+		w.connectFromTo(300, 600, 4);
+		for (int i = 609; i < 699; i++)
+			w.connectFromTo(i, i + 1, 2);
+		for (int i = 700; i < 799; i++)
+			w.connectFromTo(i, i + 1, -3);
+		
+		HashMap<Integer, Integer> pred = new HashMap<>();
+		HashMap<Integer, Integer> expected = w.bellmanFord(0, new HashMap<>());
+		HashMap<Integer, Integer> d = w.parallelBellmanFord(0, pred);
+		assertEquals(expected, d);
+		for (int i = 0; i < 800; i++) {
+			if (i >= 600 && i < 700)
+				assertEquals(WeightedGraph.MINUS_INFINITY, d.get(i), "node " + i);
+			else if (i >= 700)
+				assertEquals(WeightedGraph.INFINITY, d.get(i), "node " + i);
+			else
+				assertTrue(d.get(i) > WeightedGraph.MINUS_INFINITY && d.get(i) < WeightedGraph.INFINITY, "node " + i);
+		}
+		for (int v = 1; v < 600; v++)
+			assertEquals(d.get(v), d.get(pred.get(v)) + w.weightEdgeFromTo(pred.get(v), v));
+	}
+	
 	@Test
 	@DisplayName ("detect negative cycle")
 	void detectNegCycle() {
@@ -132,6 +296,508 @@ class WeightedGraphTests {
 		assertFalse(g.hasNegativeCycle());
 	}
 	
+	@Test
+	@DisplayName ("all pairs with Johnson's")
+	void checkJohnsons() {
+		g.setWeight(1 ,3 ,-2);
+		DistanceMatrix m = g.allPairsShortestPaths();
+		assertEquals(1, m.get(0, 3));
+		assertEquals(3, m.get(0, 2));
+		assertEquals(0, m.get(4, 4));
+		assertEquals(g.WeightOfShortestPathFromTo(1, 3), m.get(1, 3));
+		assertTrue(m.get(3, 0) >= WeightedGraph.INFINITY);
+		assertEquals(1, g.johnsons().get(new Tuple<>(0, 3)));
+		
+		g.addNode(5);
+		g.connectFromTo(3, 5, -1);
+		g.connectFromTo(5, 4, -1);
+		assertThrows(GraphException.class, () -> g.allPairsShortestPaths());
+	}
+	
+	@Test
+	@DisplayName ("A* with landmarks")
+	void checkAStar() {
+		Landmarks lm = new Landmarks(g.freeze(), 2);
+		assertEquals(2, lm.getLandmarks().length);
+		assertEquals(3, g.aStar(0, 2, lm));
+		assertEquals(2, g.aStar(0, 3, lm));
+		assertEquals(2, g.freeze().aStar(0, 3, lm));
+		assertTrue(lm.estimate(0, 3) <= 2);
+	}
+	
+	@Test
+	@DisplayName ("frozen snapshot answers like the graph")
+	void frozenSnapshot() {
+		CsrGraph c = g.freeze();
+		assertEquals(5, c.getNodesNum());
+		assertEquals(7, c.getEdgesNum());
+		assertEquals(3, c.Dijkstras(0, 2, new HashMap<>()).get(2));
+		assertEquals(2, c.bellmanFord(0, new HashMap<>()).get(3));
+		assertEquals(5, c.topologicalSort().size());
+		assertEquals(5, c.getStronglyConnectedComponents().size());
+		
+		assertEquals(3, c.bidirectionalDijkstras(0, 2));
+		assertEquals(2, c.bidirectionalDijkstras(0, 3));
+		assertEquals(2, c.bidirectionalDijkstras(1, 3));
+		assertEquals(WeightedGraph.INFINITY, c.bidirectionalDijkstras(1, 0));
+		assertEquals(c.Dijkstras(1, null, new HashMap<>()).get(0), c.bidirectionalDijkstras(1, 0));
+		
+		//Later edits do not reach the snapshot
+		g.connectFromTo(3, 0, 1);
+		assertNotNull(c.topologicalSort());
+		assertNull(g.freeze().topologicalSort());
+	}
+	
+	@Test
+	void checkBfsTree() {
+		DirectedGraph tree = g.bfsTree(0);
+		assertEquals(5, tree.getNodesNum());
+		assertEquals(4, tree.getEdgesNum());
+		assertTrue(tree.isEdgeFromTo(0, 1));
+		assertTrue(tree.isEdgeFromTo(0, 4));
+		assertEquals(0, tree.getInDegree(0));
+	}
+	
+	@Test
+	void checkHopDistances() {
+		HopDistances h = g.hopDistancesFrom(0, 1, 3);
+		assertEquals(3, h.getSourcesNum());
+		assertEquals(2, h.get(0, 3));
+		assertEquals(1, h.get(1, 2));
+		assertEquals(0, h.get(3, 3));
+		assertEquals(-1, h.get(3, 0));
+		assertEquals(5, h.getRow(0).length);
+	}
+	
+	//Edges set one more bit, so level k from 0 holds C(dims, k) nodes, and t is popcount(t & ~s) hops
+	//from s if it has every bit of s, else unreachable
+	private static DirectedGraph directedHypercube(int dims) {
+		DirectedGraph d = new DirectedGraph();
+		for (int i = 0; i < 1 << dims; i++)
+			d.addNode(i);
+		for (int i = 0; i < 1 << dims; i++) {
+			for (int b = 0; b < dims; b++) {
+				if ((i & (1 << b)) == 0)
+					d.connectFromTo(i, i | (1 << b));
+			}
+		}
+		return d;
+	}
+	
+	@Test
+	@DisplayName ("BFS tree on a directed hypercube")
+	void checkBfsTreeLarge() {
+		//The middle levels are past Frontier.GRAIN, so they are split between workers
+		int n = 1 << 13;
+		DirectedGraph d = directedHypercube(13);
+		DirectedGraph tree = d.bfsTree(0);
+		assertEquals(n - 1, tree.getEdgesNum());
+		assertEquals(0, tree.getInDegree(0));
+		for (int i = 1; i < n; i++) {
+			assertEquals(1, tree.getInDegree(i));
+			int parent = tree.getAllParents(i).iterator().next();
+			assertEquals(i, parent | i);
+			assertEquals(1, Integer.bitCount(parent ^ i));
+		}
+	}
+	
+	@Test
+	@DisplayName ("hop distances from more than 64 sources")
+	void checkHopDistancesLarge() {
+		//150 sources take three 64-bit batches, over levels past Frontier.GRAIN
+		int n = 1 << 13;
+		DirectedGraph d = directedHypercube(13);
+		int[] sources = new int[150];
+		for (int k = 0; k < sources.length; k++)
+			sources[k] = k * 53 % n;
+		HopDistances h = d.hopDistancesFrom(sources);
+		assertEquals(150, h.getSourcesNum());
+		for (int s : sources) {
+			for (int t = 0; t < n; t += 31)
+				assertEquals((s & t) == s ? Integer.bitCount(t & ~s) : -1, h.get(s, t), s + " to " + t);
+		}
+		for (int k = 0; k < sources.length; k += 10)
+			assertArrayEquals(d.hopDistancesFrom(sources[k]).getRow(sources[k]), h.getRow(sources[k]));
+	}
+	
+	@Test
+	@DisplayName ("strongly connected components and condensation")
+	void checkComponents() {
+		g.connectFromTo(3, 0, 1);
+		StronglyConnectedComponents s = g.stronglyConnectedComponents();
+		assertEquals(2, s.getComponentsNum());
+		assertEquals(s.componentOf(0), s.componentOf(3));
+		assertEquals(4, s.getComponentSize(s.componentOf(1)));
+		assertNotEquals(s.componentOf(0), s.componentOf(2));
+		
+		//The only edges between components end at 2
+		CsrGraph dag = s.condensation();
+		assertEquals(1, dag.getEdgesNum());
+		assertEquals(2, dag.topologicalSort().size());
+		assertEquals(s.componentOf(2), dag.topologicalSort().get(1));
+		
+		StronglyConnectedComponents p = new ParallelStronglyConnectedComponents(g.freeze()).components();
+		assertEquals(2, p.getComponentsNum());
+		assertEquals(p.componentOf(0), p.componentOf(4));
+		assertEquals(s.componentOf(2), p.componentOf(2));
+	}
+
+	@Test
+	@DisplayName ("parallel strongly connected components on a large graph")
+	void parallelComponentsLarge() {
+		//Past Frontier.GRAIN every phase splits its frontier. A giant cycle with chords for forward-backward,
+		//chains into and out of it for the trim, and a chain of 5-cycles left to the coloring
+		DirectedGraph d = new DirectedGraph();
+		int giant = 4000;
+		int out = giant;
+		int in = out + 1500;
+		int cycles = in + 1000;
+		int n = cycles + 300 * 5;
+		for (int i = 0; i < n; i++)
+			d.addNode(i);
+		for (int i = 0; i < giant; i++) {
+			d.connectFromTo(i, (i + 1) % giant);
+			d.connectFromTo(i, (i + 97) % giant);
+		}
+		for (int c = 0; c < 150; c++) {
+			d.connectFromTo(c * 7, out + c * 10);
+			for (int i = 1; i < 10; i++)
+				d.connectFromTo(out + c * 10 + i - 1, out + c * 10 + i);
+		}
+		for (int c = 0; c < 100; c++) {
+			for (int i = 1; i < 10; i++)
+				d.connectFromTo(in + c * 10 + i - 1, in + c * 10 + i);
+			d.connectFromTo(in + c * 10 + 9, c * 11);
+		}
+		for (int b = 0; b < 300; b++) {
+			int first = cycles + b * 5;
+			for (int i = 0; i < 5; i++)
+				d.connectFromTo(first + i, first + (i + 1) % 5);
+			if (b > 0)
+				d.connectFromTo(first - 5, first);
+		}
+
+		CsrGraph csr = d.freeze();
+		StronglyConnectedComponents s = new StronglyConnectedComponents(csr);
+		StronglyConnectedComponents p = new ParallelStronglyConnectedComponents(csr).components();
+		assertEquals(1 + 1500 + 1000 + 300, s.getComponentsNum());
+		assertEquals(s.getComponentsNum(), p.getComponentsNum());
+		//The same partition: every component of s maps to one component of p, of the same size
+		int[] match = new int[s.getComponentsNum()];
+		Arrays.fill(match, -1);
+		for (int u = 0; u < n; u++) {
+			int c = s.componentOf(u);
+			if (match[c] == -1)
+				match[c] = p.componentOf(u);
+			assertEquals(match[c], p.componentOf(u), "node " + u);
+			assertEquals(s.getComponentSize(c), p.getComponentSize(match[c]));
+		}
+		assertEquals(giant, p.getComponentSize(p.componentOf(1234)));
+		assertEquals(5, p.getComponentSize(p.componentOf(n - 1)));
+	}
+	
+	@Test
+	@DisplayName ("bulk edge loading")
+	void connectAll() {
+		g.addNode(5);
+		int[] from = {5, 5, 2, 5};
+		int[] to = {0, 2, 3, 0};
+		int[] weights = {4, 2, 1, -3};
+		
+		assertThrows(GraphException.class, () -> g.connectAll(from, to, weights, DuplicateEdges.THROW));
+		assertEquals(0, g.getOutDegree(5));
+		
+		g.connectAll(from, to, weights, DuplicateEdges.KEEP_MIN);
+		assertEquals(-3, g.weightEdgeFromTo(5, 0));
+		assertEquals(1, g.weightEdgeFromTo(2, 3));
+		assertEquals(3, g.getInDegree(3));
+		assertEquals(-3, g.WeightOfShortestPathFromTo(5, 0));
+		
+		g.connectAll(new int[] {0}, new int[] {4}, new int[] {7}, DuplicateEdges.KEEP_LAST);
+		assertEquals(7, g.weightEdgeFromTo(0, 4));
+	}
+	
+	@Test
+	@DisplayName ("save and map")
+	void mappedGraph(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("graph.bin");
+		g.save(file);
+		MappedGraph m = MappedGraph.open(file);
+		assertEquals(5, m.getNodesNum());
+		assertEquals(7, m.getEdgesNum());
+		assertTrue(m.isEdgeFromTo(1, 4));
+		assertFalse(m.isEdgeFromTo(4, 1));
+		assertEquals(3, m.weightEdgeFromTo(1, 3));
+		assertEquals(g.WeightOfShortestPathFromTo(0, 3), m.WeightOfShortestPathFromTo(0, 3));
+		assertEquals(2, m.ShortestDistanceFromTo(0, 3));
+		assertEquals(1, ((WeightedGraph) m.toGraph()).weightEdgeFromTo(4, 3));
+
+		g.connectFromTo(3, 2, -4);
+		g.save(dir.resolve("negative.bin"));
+		m = MappedGraph.open(dir.resolve("negative.bin"));
+		assertFalse(m.positiveWeights());
+		assertEquals(-2, m.WeightOfShortestPathFromTo(0, 2));
+		assertEquals(WeightedGraph.INFINITY, m.WeightOfShortestPathFromTo(3, 0));
+
+		g.connectFromTo(2, 3, 1);
+		g.save(dir.resolve("cycle.bin"));
+		m = MappedGraph.open(dir.resolve("cycle.bin"));
+		assertEquals(WeightedGraph.MINUS_INFINITY, m.WeightOfShortestPathFromTo(0, 2));
+		assertEquals(g.WeightOfShortestPathFromTo(0, 3), m.WeightOfShortestPathFromTo(0, 3));
+	}
+	
+	@Test
+	@DisplayName ("read edge list")
+	void readEdgeList(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("graph.gr");
+		Files.writeString(file, "c DIMACS\np sp 4 3\na 1 2 5\na 2 3 -1\na 2 x 1\n\na 3 1 2\n");
+		EdgeListReader reader = new EdgeListReader(file);
+		WeightedGraph w = reader.readWeighted();
+		assertEquals(4, w.getNodes().size());
+		assertEquals(-1, w.weightEdgeFromTo(2, 3));
+		assertEquals(3, reader.getEdgesRead());
+		assertEquals(1, reader.getMalformedLines());
+		assertEquals(5, reader.getFirstMalformedLine());
+		
+		Files.writeString(file, "# SNAP\n1\t2\n2 1\n3 4\n");
+		UndirectedGraph u = new EdgeListReader(file).readUndirected();
+		assertEquals(2, u.getComponentsNum());
+	}
+	
+	@Test
+	@DisplayName ("read edge list in small chunks")
+	void readEdgeListChunks(@TempDir Path dir) throws IOException {
+		//Every chunk size from 1 byte to the whole file, so each line starts, ends and straddles a chunk boundary
+		//somewhere, and the malformed lines 9 and 11 fall in later chunks
+		Path file = dir.resolve("graph.txt");
+		String text = "# SNAP\n1 2\n10 20 3\n\n300 4000 -7\n5 6\n% note\n7 8 9\nx y\n123456 654321 1\n2 3 4 5\n8 9";
+		Files.writeString(file, text);
+		int[] from = {1, 10, 300, 5, 7, 123456, 8};
+		int[] to = {2, 20, 4000, 6, 8, 654321, 9};
+		int[] weights = {0, 3, -7, 0, 9, 1, 0};
+		for (int chunk = 1; chunk <= text.length() + 1; chunk++) {
+			EdgeListReader reader = new EdgeListReader(file, DuplicateEdges.KEEP_FIRST, chunk);
+			EdgeList edges = reader.readEdges();
+			assertEquals(from.length, edges.size(), "chunk " + chunk);
+			for (int i = 0; i < from.length; i++) {
+				assertEquals(from[i], edges.getFrom(i), "chunk " + chunk);
+				assertEquals(to[i], edges.getTo(i), "chunk " + chunk);
+				assertEquals(weights[i], edges.getWeight(i), "chunk " + chunk);
+			}
+			assertEquals(2, reader.getMalformedLines(), "chunk " + chunk);
+			assertEquals(9, reader.getFirstMalformedLine(), "chunk " + chunk);
+		}
+		
+		WeightedGraph w = new EdgeListReader(file, DuplicateEdges.KEEP_FIRST, 4).readWeighted();
+		assertEquals(13, w.getNodesNum());
+		assertEquals(-7, w.weightEdgeFromTo(300, 4000));
+	}
+	
+	@Test
+	@DisplayName ("parents and reverse")
+	void parentsAndReverse() {
+		assertEquals(Set.of(0, 1), g.getAllParents(4));
+		assertEquals(Set.of(1, 4), g.getAllParents(2));
+		
+		DirectedGraph rev = g.getReverse();
+		assertTrue(rev.isEdgeFromTo(4, 0));
+		assertTrue(rev.isEdgeFromTo(3, 1));
+		assertEquals(g.getOutDegree(1), rev.getInDegree(1));
+		
+		g.removeNode(1);
+		assertEquals(Set.of(0), g.getAllParents(4));
+		assertEquals(Set.of(4), g.getAllParents(2));
+		assertEquals(1, g.getInDegree(2));
+	}
+	
+	@Test
+	@DisplayName ("children past the promotion degree")
+	void promotedChildren() {
+		for (int i = 10; i < 40; i++) {
+			g.addNode(i);
+			g.connectFromTo(0, i, i);
+		}
+		assertEquals(32, g.getOutDegree(0));
+		
+		//Removing from the middle moves the last children into the freed positions
+		for (int i = 15; i < 25; i++)
+			g.disconnectFromTo(0, i);
+		assertEquals(22, g.getOutDegree(0));
+		for (int i = 10; i < 40; i++) {
+			boolean kept = i < 15 || i >= 25;
+			assertEquals(kept, g.isEdgeFromTo(0, i));
+			if (kept)
+				assertEquals(i, g.weightEdgeFromTo(0, i));
+		}
+		assertEquals(3, g.weightEdgeFromTo(0, 1));
+		g.connectFromTo(0, 20, 7);
+		assertEquals(7, g.weightEdgeFromTo(0, 20));
+		
+		//Self loops and repeated edges are stored twice in an undirected graph
+		UndirectedGraph u = new UndirectedGraph();
+		for (int i = 0; i < 20; i++)
+			u.addNode(i);
+		for (int i = 1; i < 20; i++)
+			u.connect(0, i);
+		u.connect(0, 0);
+		u.connect(0, 5);
+		assertEquals(22, new DirectedGraph(u).getOutDegree(0));
+		u.disconnect(0, 5);
+		assertTrue(u.isEdge(0, 5));
+		u.disconnect(0, 5);
+		assertFalse(u.isEdge(0, 5));
+		u.disconnect(0, 0);
+		assertEquals(18, new DirectedGraph(u).getOutDegree(0));
+		assertTrue(u.isEdge(0, 19));
+		assertTrue(u.isEdge(7, 0));
+		
+		//A bulk load stores a new self loop twice too, even when it is listed more than once
+		u.connectAll(new EdgeList(new int[] {0, 3, 3, 0}, new int[] {0, 3, 3, 0}, null), DuplicateEdges.KEEP_FIRST);
+		DirectedGraph d = new DirectedGraph(u);
+		assertEquals(20, d.getOutDegree(0));
+		assertEquals(3, d.getOutDegree(3));
+		u.connect(4, 4);
+		u.connectAll(new EdgeList(new int[] {4}, new int[] {4}, null), DuplicateEdges.KEEP_FIRST);
+		assertEquals(3, new DirectedGraph(u).getOutDegree(4));
+		u.disconnect(3, 3);
+		assertEquals(1, new DirectedGraph(u).getOutDegree(3));
+	}
+	
+	@Test
+	@DisplayName ("direction-optimizing BFS on a hypercube")
+	void undirectedBfs() {
+		//The middle layers of an 11-dimensional hypercube are wide enough for the bottom-up steps, and the last ones
+		//narrow enough to go back to top-down. The distance between two corners is the number of bits they differ in
+		UndirectedGraph u = new UndirectedGraph();
+		int n = 1 << 11;
+		for (int i = 0; i <= n; i++)
+			u.addNode(i);
+		for (int i = 0; i < n; i++) {
+			for (int b = 0; b < 11; b++) {
+				if ((i & (1 << b)) == 0)
+					u.connect(i, i | (1 << b));
+			}
+		}
+		for (int i = 0; i < n; i += 7)
+			assertEquals(Integer.bitCount(i), u.ShortestDistanceFromTo(0, i));
+		assertEquals(11, u.ShortestDistanceFromTo(n - 1, 0));
+		assertEquals(4, u.ShortestDistanceFromTo(0b101, 0b1010));
+		
+		DirectedGraph tree = u.bfsTree(0);
+		assertEquals(0, tree.getInDegree(0));
+		for (int i = 1; i < n; i++) {
+			assertEquals(1, tree.getInDegree(i));
+			int parent = tree.getAllParents(i).iterator().next();
+			assertEquals(Integer.bitCount(i) - 1, Integer.bitCount(parent));
+			assertEquals(1, Integer.bitCount(parent ^ i));
+		}
+		
+		//Node n has no edges
+		assertEquals(n, u.getConnectedComponentOf(5).size());
+		assertFalse(u.getConnectedComponentOf(5).contains(n));
+		assertEquals(1, u.getConnectedComponentOf(n).size());
+	}
+	
+	@Test
+	@DisplayName ("union-find components through edits")
+	void unionFindComponents() {
+		//Two triangles joined by the bridge 2-3, and the node 6 on its own
+		UndirectedGraph u = new UndirectedGraph();
+		for (int i = 0; i < 7; i++)
+			u.addNode(i);
+		u.connect(0, 1);
+		u.connect(1, 2);
+		u.connect(2, 0);
+		u.connect(3, 4);
+		u.connect(4, 5);
+		u.connect(5, 3);
+		assertEquals(3, u.getComponentsNum());
+		assertFalse(u.connected(0, 3));
+		
+		u.connect(2, 3);
+		assertEquals(2, u.getComponentsNum());
+		assertTrue(u.connected(0, 5));
+		assertEquals(u.componentOf(0), u.componentOf(4));
+		assertNotEquals(u.componentOf(0), u.componentOf(6));
+		assertEquals(6, u.componentSize(1));
+		assertEquals(1, u.componentSize(6));
+		
+		//Removing the bridge splits the component again, and so does deleting a node
+		u.disconnect(2, 3);
+		assertEquals(3, u.getComponentsNum());
+		assertFalse(u.connected(0, 5));
+		assertTrue(u.connected(3, 5));
+		assertEquals(3, u.componentSize(4));
+		
+		u.connect(6, 0);
+		assertEquals(4, u.componentSize(2));
+		u.delete(0);
+		assertEquals(3, u.getComponentsNum());
+		assertFalse(u.connected(6, 1));
+		assertTrue(u.connected(1, 2));
+		assertEquals(2, u.componentSize(1));
+		
+		//A node added later starts a component of its own
+		u.addNode(7);
+		u.connect(7, 6);
+		assertEquals(3, u.getComponentsNum());
+		assertEquals(u.componentOf(6), u.componentOf(7));
+	}
+	
+	@Test
+	@DisplayName ("parallel connected components")
+	void parallelComponents() {
+		//A triangle, an edge and two isolated nodes
+		UndirectedGraph u = new UndirectedGraph();
+		for (int i = 0; i < 7; i++)
+			u.addNode(i * 10);
+		u.connect(0, 10);
+		u.connect(10, 20);
+		u.connect(20, 0);
+		u.connect(30, 40);
+		ConnectedComponents c = u.connectedComponents();
+		assertEquals(4, c.getComponentsNum());
+		assertEquals(c.componentOf(0), c.componentOf(20));
+		assertEquals(c.componentOf(30), c.componentOf(40));
+		assertNotEquals(c.componentOf(0), c.componentOf(30));
+		assertNotEquals(c.componentOf(50), c.componentOf(60));
+		int[] sizes = c.getComponentSizes();
+		Arrays.sort(sizes);
+		assertArrayEquals(new int[] {1, 1, 2, 3}, sizes);
+		assertEquals(3, c.getComponentSize(c.componentOf(10)));
+		
+		//Past Frontier.GRAIN the passes run in parallel, and the sampled giant component skips its remaining edges.
+		//A giant cycle with chords, 40 cycles of 50 nodes, and 500 isolated nodes
+		UndirectedGraph big = new UndirectedGraph();
+		int giant = 3000;
+		int n = giant + 40 * 50 + 500;
+		for (int i = 0; i < n; i++)
+			big.addNode(i);
+		for (int i = 0; i < giant; i++) {
+			big.connect(i, (i + 1) % giant);
+			big.connect(i, (i + 37) % giant);
+		}
+		for (int b = 0; b < 40; b++) {
+			int first = giant + b * 50;
+			for (int i = 0; i < 50; i++)
+				big.connect(first + i, first + (i + 1) % 50);
+		}
+		c = big.connectedComponents();
+		assertEquals(1 + 40 + 500, c.getComponentsNum());
+		assertEquals(giant, c.getComponentSize(c.componentOf(1234)));
+		assertEquals(c.componentOf(0), c.componentOf(giant - 1));
+		assertEquals(c.componentOf(giant), c.componentOf(giant + 49));
+		assertNotEquals(c.componentOf(giant + 49), c.componentOf(giant + 50));
+		assertNotEquals(c.componentOf(n - 1), c.componentOf(n - 2));
+		for (int i = 0; i < n; i += 13)
+			assertEquals(big.componentSize(i), c.getComponentSize(c.componentOf(i)));
+		sizes = c.getComponentSizes();
+		Arrays.sort(sizes);
+		assertEquals(1, sizes[0]);
+		assertEquals(50, sizes[500]);
+		assertEquals(giant, sizes[540]);
+	}
+	
 
 	
 }